@@ -0,0 +1,168 @@
+package com.cloudbees.plugins.credentials;
+
+import com.cloudbees.plugins.credentials.common.IdCredentials;
+import com.cloudbees.plugins.credentials.domains.Domain;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.security.Permission;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * A {@link CredentialsStore.Batch} that applies the changes to a private copy of a store's credentials, for the
+ * store to publish in one go once all the changes have been made, or to discard if any of them fails.
+ *
+ * @since TODO
+ */
+final class CredentialsBatch implements CredentialsStore.Batch {
+
+    /**
+     * The copy of the credentials.
+     */
+    @NonNull
+    private final Map<Domain, List<Credentials>> domainCredentialsMap = new LinkedHashMap<>();
+
+    /**
+     * Checks the permission for each change.
+     */
+    @NonNull
+    private final Consumer<Permission> permissionCheck;
+
+    /**
+     * Whether any change modified the credentials.
+     */
+    private boolean modified;
+
+    /**
+     * Constructor.
+     *
+     * @param domainCredentialsMap the credentials of the store.
+     * @param permissionCheck      checks the permission for each change, as the store does.
+     */
+    CredentialsBatch(@NonNull Map<Domain, List<Credentials>> domainCredentialsMap,
+                     @NonNull Consumer<Permission> permissionCheck) {
+        for (Map.Entry<Domain, List<Credentials>> entry : domainCredentialsMap.entrySet()) {
+            this.domainCredentialsMap.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+        }
+        this.permissionCheck = permissionCheck;
+    }
+
+    /**
+     * Returns the changed credentials.
+     *
+     * @return the changed credentials.
+     */
+    @NonNull
+    Map<Domain, List<Credentials>> getDomainCredentialsMap() {
+        return domainCredentialsMap;
+    }
+
+    /**
+     * Checks whether any change modified the credentials.
+     *
+     * @return {@code true} if the credentials need to be saved.
+     */
+    boolean isModified() {
+        return modified;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean addDomain(@NonNull Domain domain, @NonNull List<Credentials> credentials) {
+        permissionCheck.accept(CredentialsProvider.MANAGE_DOMAINS);
+        List<Credentials> list = domainCredentialsMap.get(domain);
+        if (list == null) {
+            domainCredentialsMap.put(domain, new ArrayList<>(credentials));
+            return modified = true;
+        }
+        boolean changed = false;
+        for (Credentials c : credentials) {
+            if (!list.contains(c)) {
+                list.add(c);
+                changed = true;
+            }
+        }
+        modified |= changed;
+        return changed;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean removeDomain(@NonNull Domain domain) {
+        permissionCheck.accept(CredentialsProvider.MANAGE_DOMAINS);
+        if (domainCredentialsMap.remove(domain) == null) {
+            return false;
+        }
+        return modified = true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean updateDomain(@NonNull Domain current, @NonNull Domain replacement) {
+        permissionCheck.accept(CredentialsProvider.MANAGE_DOMAINS);
+        if (!domainCredentialsMap.containsKey(current)) {
+            return false;
+        }
+        domainCredentialsMap.put(replacement, domainCredentialsMap.remove(current));
+        return modified = true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean addCredentials(@NonNull Domain domain, @NonNull Credentials credentials) {
+        permissionCheck.accept(CredentialsProvider.CREATE);
+        List<Credentials> list = domainCredentialsMap.get(domain);
+        if (list == null || list.contains(credentials)) {
+            return false;
+        }
+        list.add(credentials);
+        return modified = true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean removeCredentials(@NonNull Domain domain, @NonNull Credentials credentials) {
+        permissionCheck.accept(CredentialsProvider.DELETE);
+        List<Credentials> list = domainCredentialsMap.get(domain);
+        if (list == null || !list.remove(credentials)) {
+            return false;
+        }
+        return modified = true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean updateCredentials(@NonNull Domain domain, @NonNull Credentials current,
+                                     @NonNull Credentials replacement) {
+        permissionCheck.accept(CredentialsProvider.UPDATE);
+        List<Credentials> list = domainCredentialsMap.get(domain);
+        if (list == null) {
+            return false;
+        }
+        if (current instanceof IdCredentials || replacement instanceof IdCredentials) {
+            if (!current.equals(replacement)) {
+                throw new IllegalArgumentException("Credentials' IDs do not match, will not update.");
+            }
+        }
+        int index = list.indexOf(current);
+        if (index == -1) {
+            return false;
+        }
+        list.set(index, replacement);
+        return modified = true;
+    }
+}
@@ -129,7 +129,7 @@ public class CredentialsConfidentialKey extends ConfidentialKey {
      */
     public Cipher encrypt(byte[] salt) {
         try {
-            return createCipher(getKey().getEncoded(), salt, Cipher.ENCRYPT_MODE);
+            return createCipher(getKey().getEncoded(), salt, null, Cipher.ENCRYPT_MODE);
         } catch (GeneralSecurityException e) {
             throw new AssertionError(e);
         }
@@ -143,7 +143,23 @@ public class CredentialsConfidentialKey extends ConfidentialKey {
      */
     public Cipher decrypt(byte[] salt) {
         try {
-            return createCipher(getKey().getEncoded(), salt, Cipher.DECRYPT_MODE);
+            return createCipher(getKey().getEncoded(), salt, null, Cipher.DECRYPT_MODE);
+        } catch (GeneralSecurityException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Returns a {@link Cipher} object for decrypting with this key from a block other than the first, using the
+     * preceding block of cipher text instead of the initialization vector derived from the salt.
+     *
+     * @param salt the salt to use for the {@link Cipher}
+     * @param iv   the block of cipher text preceding the first block to decrypt.
+     * @return the {@link Cipher}
+     */
+    /*package*/ Cipher decrypt(byte[] salt, byte[] iv) {
+        try {
+            return createCipher(getKey().getEncoded(), salt, iv, Cipher.DECRYPT_MODE);
         } catch (GeneralSecurityException e) {
             throw new AssertionError(e);
         }
@@ -151,7 +167,7 @@ public class CredentialsConfidentialKey extends ConfidentialKey {
 
     // copied from https://github.com/codehaus-plexus/plexus-cipher/blob/6ab0e38df80beed9ab3227ffab938b21dcdf5505/src
     // /main/java/org/sonatype/plexus/components/cipher/PBECipher.java
-    private Cipher createCipher(final byte[] pwdAsBytes, byte[] salt, final int mode)
+    private Cipher createCipher(final byte[] pwdAsBytes, byte[] salt, final byte[] chainedIv, final int mode)
             throws GeneralSecurityException {
         MessageDigest _digester = MessageDigest.getInstance(DIGEST_ALG);
         _digester.reset();
@@ -216,7 +232,7 @@ public class CredentialsConfidentialKey extends ConfidentialKey {
 
         Cipher cipher = Secret.getCipher(CIPHER_ALG);
 
-        cipher.init(mode, new SecretKeySpec(key, KEY_ALG), new IvParameterSpec(iv));
+        cipher.init(mode, new SecretKeySpec(key, KEY_ALG), new IvParameterSpec(chainedIv != null ? chainedIv : iv));
 
         return cipher;
     }
@@ -0,0 +1,346 @@
+package com.cloudbees.plugins.credentials;
+
+import com.cloudbees.plugins.credentials.common.IdCredentials;
+import com.cloudbees.plugins.credentials.domains.Domain;
+import com.thoughtworks.xstream.io.xml.CompactWriter;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Util;
+import hudson.XmlFile;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.model.Jenkins;
+
+/**
+ * An append-only journal of the changes made to the credentials of the {@link SystemCredentialsProvider} since they
+ * were last written in full. The first line holds the digest of the snapshot the journal applies to, so that a journal
+ * left behind by an interrupted compaction is recognised as stale, and every following line holds one {@link Entry}.
+ *
+ * @since TODO
+ */
+final class CredentialsJournal {
+
+    /**
+     * Our logger.
+     */
+    private static final Logger LOGGER = Logger.getLogger(CredentialsJournal.class.getName());
+
+    /**
+     * The journal file.
+     */
+    @NonNull
+    private final File file;
+
+    /**
+     * Constructor.
+     *
+     * @param file the journal file.
+     */
+    CredentialsJournal(@NonNull File file) {
+        this.file = file;
+    }
+
+    /**
+     * Returns the journal of the {@link SystemCredentialsProvider}.
+     *
+     * @return the journal.
+     */
+    @NonNull
+    static CredentialsJournal forSystem() {
+        return new CredentialsJournal(new File(Jenkins.get().getRootDir(), "credentials.journal"));
+    }
+
+    /**
+     * Returns the journal file.
+     *
+     * @return the journal file.
+     */
+    @NonNull
+    File getFile() {
+        return file;
+    }
+
+    /**
+     * Applies the journal to the credentials read from a snapshot.
+     *
+     * @param snapshot             the snapshot the credentials were read from.
+     * @param domainCredentialsMap the credentials read from the snapshot.
+     * @return {@code true} if the journal was not empty, in which case it should be compacted before anything is
+     * appended to it.
+     * @throws IOException if the journal could not be read.
+     */
+    synchronized boolean replay(@NonNull XmlFile snapshot,
+                                @NonNull Map<Domain, List<Credentials>> domainCredentialsMap) throws IOException {
+        if (!file.exists()) {
+            return false;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String header = reader.readLine();
+            if (header == null || !snapshot.exists() || !header.equals(Util.getDigestOf(snapshot.getFile()))) {
+                LOGGER.log(Level.WARNING, "Ignoring {0} as it does not apply to {1}", new Object[]{file, snapshot});
+                return true;
+            }
+            int count = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Entry entry;
+                try {
+                    entry = (Entry) Jenkins.XSTREAM2.fromXML(line);
+                } catch (RuntimeException e) {
+                    // most likely the last append was interrupted
+                    LOGGER.log(Level.WARNING, "Ignoring the rest of " + file + " after " + count + " entries", e);
+                    break;
+                }
+                entry.apply(domainCredentialsMap);
+                count++;
+            }
+            LOGGER.log(Level.FINE, "Replayed {0} entries from {1}", new Object[]{count, file});
+        }
+        return true;
+    }
+
+    /**
+     * Appends an entry.
+     *
+     * @param snapshot the snapshot the journal applies to, which must exist.
+     * @param entry    the entry.
+     * @return the size of the journal in bytes.
+     * @throws IOException if the entry could not be appended.
+     */
+    synchronized long append(@NonNull XmlFile snapshot, @NonNull Entry entry) throws IOException {
+        StringBuilder text = new StringBuilder();
+        if (!file.exists()) {
+            text.append(Util.getDigestOf(snapshot.getFile())).append('\n');
+        }
+        StringWriter xml = new StringWriter();
+        Jenkins.XSTREAM2.marshal(entry, new CompactWriter(xml));
+        // keep each entry on a single line, the character references read back as the same characters
+        text.append(xml.toString().replace("\r", "&#13;").replace("\n", "&#10;")).append('\n');
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = StandardCharsets.UTF_8.encode(text.toString());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+            return channel.size();
+        }
+    }
+
+    /**
+     * Deletes the journal, once its entries are part of the snapshot.
+     *
+     * @throws IOException if the journal could not be deleted.
+     */
+    synchronized void delete() throws IOException {
+        Files.deleteIfExists(file.toPath());
+    }
+
+    /**
+     * Records {@link CredentialsStore#addDomain(Domain, List)}.
+     *
+     * @param domain      the domain.
+     * @param credentials the credentials.
+     * @return the entry.
+     */
+    @NonNull
+    static Entry addDomain(@NonNull Domain domain, @NonNull List<Credentials> credentials) {
+        return new AddDomain(domain, new ArrayList<>(credentials));
+    }
+
+    /**
+     * Records {@link CredentialsStore#removeDomain(Domain)}.
+     *
+     * @param domain the domain.
+     * @return the entry.
+     */
+    @NonNull
+    static Entry removeDomain(@NonNull Domain domain) {
+        return new RemoveDomain(domain);
+    }
+
+    /**
+     * Records {@link CredentialsStore#updateDomain(Domain, Domain)}.
+     *
+     * @param current     the domain.
+     * @param replacement the replacement domain.
+     * @return the entry.
+     */
+    @NonNull
+    static Entry updateDomain(@NonNull Domain current, @NonNull Domain replacement) {
+        return new UpdateDomain(current, replacement);
+    }
+
+    /**
+     * Records {@link CredentialsStore#addCredentials(Domain, Credentials)}.
+     *
+     * @param domain      the domain.
+     * @param credentials the credentials.
+     * @return the entry.
+     */
+    @NonNull
+    static Entry addCredentials(@NonNull Domain domain, @NonNull Credentials credentials) {
+        return new AddCredentials(domain, credentials);
+    }
+
+    /**
+     * Records {@link CredentialsStore#removeCredentials(Domain, Credentials)}.
+     *
+     * @param domain      the domain.
+     * @param credentials the credentials.
+     * @return the entry or {@code null} if the credentials cannot be identified once read back.
+     */
+    @CheckForNull
+    static Entry removeCredentials(@NonNull Domain domain, @NonNull Credentials credentials) {
+        return credentials instanceof IdCredentials ? new RemoveCredentials(domain, credentials) : null;
+    }
+
+    /**
+     * Records {@link CredentialsStore#updateCredentials(Domain, Credentials, Credentials)}.
+     *
+     * @param domain      the domain.
+     * @param current     the credentials.
+     * @param replacement the replacement credentials.
+     * @return the entry or {@code null} if the credentials cannot be identified once read back.
+     */
+    @CheckForNull
+    static Entry updateCredentials(@NonNull Domain domain, @NonNull Credentials current,
+                                   @NonNull Credentials replacement) {
+        return current instanceof IdCredentials ? new UpdateCredentials(domain, current, replacement) : null;
+    }
+
+    /**
+     * A change to the credentials, applied the same way as {@link SystemCredentialsProvider} applies it.
+     */
+    abstract static class Entry {
+        /**
+         * Applies the change.
+         *
+         * @param domainCredentialsMap the credentials to change.
+         */
+        abstract void apply(@NonNull Map<Domain, List<Credentials>> domainCredentialsMap);
+    }
+
+    private static final class AddDomain extends Entry {
+        private final Domain domain;
+        private final List<Credentials> credentials;
+
+        AddDomain(Domain domain, List<Credentials> credentials) {
+            this.domain = domain;
+            this.credentials = credentials;
+        }
+
+        @Override
+        void apply(@NonNull Map<Domain, List<Credentials>> domainCredentialsMap) {
+            List<Credentials> list = domainCredentialsMap.get(domain);
+            if (list == null) {
+                domainCredentialsMap.put(domain, new ArrayList<>(credentials));
+                return;
+            }
+            for (Credentials c : credentials) {
+                if (!list.contains(c)) {
+                    list.add(c);
+                }
+            }
+        }
+    }
+
+    private static final class RemoveDomain extends Entry {
+        private final Domain domain;
+
+        RemoveDomain(Domain domain) {
+            this.domain = domain;
+        }
+
+        @Override
+        void apply(@NonNull Map<Domain, List<Credentials>> domainCredentialsMap) {
+            domainCredentialsMap.remove(domain);
+        }
+    }
+
+    private static final class UpdateDomain extends Entry {
+        private final Domain current;
+        private final Domain replacement;
+
+        UpdateDomain(Domain current, Domain replacement) {
+            this.current = current;
+            this.replacement = replacement;
+        }
+
+        @Override
+        void apply(@NonNull Map<Domain, List<Credentials>> domainCredentialsMap) {
+            if (domainCredentialsMap.containsKey(current)) {
+                domainCredentialsMap.put(replacement, domainCredentialsMap.remove(current));
+            }
+        }
+    }
+
+    private static final class AddCredentials extends Entry {
+        private final Domain domain;
+        private final Credentials credentials;
+
+        AddCredentials(Domain domain, Credentials credentials) {
+            this.domain = domain;
+            this.credentials = credentials;
+        }
+
+        @Override
+        void apply(@NonNull Map<Domain, List<Credentials>> domainCredentialsMap) {
+            List<Credentials> list = domainCredentialsMap.get(domain);
+            if (list != null && !list.contains(credentials)) {
+                list.add(credentials);
+            }
+        }
+    }
+
+    private static final class RemoveCredentials extends Entry {
+        private final Domain domain;
+        private final Credentials credentials;
+
+        RemoveCredentials(Domain domain, Credentials credentials) {
+            this.domain = domain;
+            this.credentials = credentials;
+        }
+
+        @Override
+        void apply(@NonNull Map<Domain, List<Credentials>> domainCredentialsMap) {
+            List<Credentials> list = domainCredentialsMap.get(domain);
+            if (list != null) {
+                list.remove(credentials);
+            }
+        }
+    }
+
+    private static final class UpdateCredentials extends Entry {
+        private final Domain domain;
+        private final Credentials current;
+        private final Credentials replacement;
+
+        UpdateCredentials(Domain domain, Credentials current, Credentials replacement) {
+            this.domain = domain;
+            this.current = current;
+            this.replacement = replacement;
+        }
+
+        @Override
+        void apply(@NonNull Map<Domain, List<Credentials>> domainCredentialsMap) {
+            List<Credentials> list = domainCredentialsMap.get(domain);
+            int index = list == null ? -1 : list.indexOf(current);
+            if (index != -1) {
+                list.set(index, replacement);
+            }
+        }
+    }
+}
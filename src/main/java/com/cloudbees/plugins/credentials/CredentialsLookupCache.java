@@ -0,0 +1,297 @@
+package com.cloudbees.plugins.credentials;
+
+import com.cloudbees.plugins.credentials.domains.DomainRequirement;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.XmlFile;
+import hudson.model.Fingerprint;
+import hudson.model.Run;
+import hudson.model.Saveable;
+import hudson.model.listeners.SaveableListener;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import org.springframework.security.core.Authentication;
+
+/**
+ * A bounded cache of the results of {@link CredentialsProvider#lookupCredentialsInItemGroup(Class,
+ * hudson.model.ItemGroup, Authentication, List)} and {@link CredentialsProvider#lookupCredentialsInItem(Class,
+ * hudson.model.Item, Authentication, List)}.
+ * <p>
+ * Entries are tagged with the credentials <em>generation</em> that was current when the lookup started. Every
+ * mutation of a {@link CredentialsStore} (and every reconfiguration of the {@link CredentialsProviderManager}) bumps
+ * the generation, so a cached result is only ever returned while nothing has changed since it was computed. As
+ * {@link CredentialsProvider} implementations backed by external systems can change without Jenkins being told,
+ * entries also expire after a maximum age.
+ * <p>
+ * The cache is disabled unless {@code com.cloudbees.plugins.credentials.CredentialsLookupCache.maxSize} is set to a
+ * positive value.
+ * <p>
+ * Separately, the IDs that {@link CredentialsProvider#findCredentialByIdInItemGroup(String, Class,
+ * hudson.model.ItemGroup, Authentication, List)} and friends failed to find can be remembered for a short while, so
+ * that a job repeatedly asking for a credential that does not exist does not query every provider each time. As with
+ * the lookups, any change to the credentials forgets them. This is disabled unless
+ * {@code com.cloudbees.plugins.credentials.CredentialsLookupCache.missingMaxSize} is set to a positive value.
+ *
+ * @since TODO
+ */
+@Restricted(NoExternalUse.class)
+public final class CredentialsLookupCache {
+
+    /**
+     * Our logger.
+     */
+    private static final Logger LOGGER = Logger.getLogger(CredentialsLookupCache.class.getName());
+
+    /**
+     * The maximum number of cached lookups, {@code 0} or less disables the cache.
+     */
+    @Restricted(NoExternalUse.class)
+    /* package-protected */ static /* not final */ int MAX_SIZE =
+            Integer.getInteger(CredentialsLookupCache.class.getName() + ".maxSize", 0);
+
+    /**
+     * The maximum age of a cached lookup in milliseconds.
+     */
+    @Restricted(NoExternalUse.class)
+    /* package-protected */ static /* not final */ long MAX_AGE_MILLIS =
+            Long.getLong(CredentialsLookupCache.class.getName() + ".maxAgeMillis", TimeUnit.MINUTES.toMillis(1));
+
+    /**
+     * The maximum number of remembered missing IDs, {@code 0} or less disables remembering them.
+     */
+    @Restricted(NoExternalUse.class)
+    /* package-protected */ static /* not final */ int MISSING_MAX_SIZE =
+            Integer.getInteger(CredentialsLookupCache.class.getName() + ".missingMaxSize", 0);
+
+    /**
+     * How long to remember a missing ID in milliseconds.
+     */
+    @Restricted(NoExternalUse.class)
+    /* package-protected */ static /* not final */ long MISSING_MAX_AGE_MILLIS =
+            Long.getLong(CredentialsLookupCache.class.getName() + ".missingMaxAgeMillis", TimeUnit.SECONDS.toMillis(5));
+
+    /**
+     * The credentials generation, bumped on every change that could affect the result of a lookup.
+     */
+    private static final AtomicLong GENERATION = new AtomicLong();
+
+    /**
+     * The cached lookups.
+     */
+    private static final ConcurrentMap<Key, Entry> CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * The remembered missing IDs.
+     */
+    private static final ConcurrentMap<Key, Entry> MISSING = new ConcurrentHashMap<>();
+
+    /**
+     * Utility class.
+     */
+    private CredentialsLookupCache() {
+        throw new IllegalAccessError("Utility class");
+    }
+
+    /**
+     * Returns the current credentials generation.
+     *
+     * @return the current credentials generation.
+     */
+    public static long generation() {
+        return GENERATION.get();
+    }
+
+    /**
+     * Records that something which could affect the result of a credentials lookup has changed.
+     */
+    public static void invalidate() {
+        GENERATION.incrementAndGet();
+        CACHE.clear();
+        MISSING.clear();
+    }
+
+    /**
+     * Returns {@code true} if lookups are being cached.
+     *
+     * @return {@code true} if lookups are being cached.
+     */
+    public static boolean isEnabled() {
+        return MAX_SIZE > 0;
+    }
+
+    /**
+     * Returns the cached result of a lookup, computing it if required.
+     *
+     * @param type               the type of credentials.
+     * @param context            the context of the lookup.
+     * @param authentication     the authentication of the lookup.
+     * @param domainRequirements the domain requirements of the lookup.
+     * @param loader             computes the result if it is not cached.
+     * @param <C>                the credentials type.
+     * @return the result of the lookup.
+     */
+    @NonNull
+    @SuppressWarnings("unchecked")
+    static <C extends Credentials> List<C> lookup(@NonNull Class<C> type, @NonNull Object context,
+                                                 @NonNull Authentication authentication,
+                                                 @NonNull List<DomainRequirement> domainRequirements,
+                                                 @NonNull Supplier<List<C>> loader) {
+        if (!isEnabled()) {
+            return loader.get();
+        }
+        Key key = new Key(null, type, context, authentication, domainRequirements);
+        long generation = GENERATION.get();
+        Entry entry = CACHE.get(key);
+        if (entry != null && entry.isValid(generation, MAX_AGE_MILLIS)) {
+            LOGGER.finer(() -> "cache hit for " + type + " in " + context);
+            // callers are allowed to modify the returned list
+            return new ArrayList<>((List<C>) entry.credentials);
+        }
+        List<C> result = loader.get();
+        if (CACHE.size() >= MAX_SIZE) {
+            // crude but cheap, the working set of a busy controller is expected to fit comfortably
+            CACHE.clear();
+        }
+        CACHE.put(key, new Entry(generation, Collections.unmodifiableList(new ArrayList<>(result))));
+        return result;
+    }
+
+    /**
+     * Checks whether a credential was recently found to be missing, i.e. the same lookup by ID did not find anything
+     * and nothing has changed since.
+     *
+     * @param id                 the ID.
+     * @param type               the type of credentials.
+     * @param context            the context of the lookup.
+     * @param authentication     the authentication of the lookup.
+     * @param domainRequirements the domain requirements of the lookup.
+     * @return {@code true} if the credential is known to be missing.
+     */
+    static boolean isMissing(@NonNull String id, @NonNull Class<?> type, @NonNull Object context,
+                             @NonNull Authentication authentication,
+                             @NonNull List<DomainRequirement> domainRequirements) {
+        if (MISSING_MAX_SIZE <= 0) {
+            return false;
+        }
+        Entry entry = MISSING.get(new Key(id, type, context, authentication, domainRequirements));
+        if (entry != null && entry.isValid(GENERATION.get(), MISSING_MAX_AGE_MILLIS)) {
+            LOGGER.finer(() -> id + " is known to be missing in " + context);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Records that a lookup by ID did not find anything.
+     *
+     * @param generation         the {@link #generation()} from before the lookup started.
+     * @param id                 the ID.
+     * @param type               the type of credentials.
+     * @param context            the context of the lookup.
+     * @param authentication     the authentication of the lookup.
+     * @param domainRequirements the domain requirements of the lookup.
+     */
+    static void recordMissing(long generation, @NonNull String id, @NonNull Class<?> type, @NonNull Object context,
+                              @NonNull Authentication authentication,
+                              @NonNull List<DomainRequirement> domainRequirements) {
+        if (MISSING_MAX_SIZE <= 0) {
+            return;
+        }
+        if (MISSING.size() >= MISSING_MAX_SIZE) {
+            MISSING.clear();
+        }
+        MISSING.put(new Key(id, type, context, authentication, domainRequirements), new Entry(generation, List.of()));
+    }
+
+    /**
+     * The key of a cached lookup.
+     */
+    private static final class Key {
+        private final String id;
+        private final Class<?> type;
+        private final Object context;
+        private final Authentication authentication;
+        private final List<DomainRequirement> domainRequirements;
+        private final int hashCode;
+
+        Key(String id, Class<?> type, Object context, Authentication authentication,
+            List<DomainRequirement> domainRequirements) {
+            this.id = id;
+            this.type = type;
+            this.context = context;
+            this.authentication = authentication;
+            // may contain null entries so List.copyOf is not an option
+            this.domainRequirements = new ArrayList<>(domainRequirements);
+            this.hashCode = Objects.hash(id, type, context, authentication, this.domainRequirements);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) o;
+            return Objects.equals(id, that.id)
+                    && type == that.type
+                    && context == that.context
+                    && authentication.equals(that.authentication)
+                    && domainRequirements.equals(that.domainRequirements);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    /**
+     * A cached lookup.
+     */
+    private static final class Entry {
+        private final long generation;
+        private final long created = System.currentTimeMillis();
+        private final List<?> credentials;
+
+        Entry(long generation, List<?> credentials) {
+            this.generation = generation;
+            this.credentials = credentials;
+        }
+
+        boolean isValid(long currentGeneration, long maxAgeMillis) {
+            return generation == currentGeneration && System.currentTimeMillis() - created < maxAgeMillis;
+        }
+    }
+
+    /**
+     * Invalidates the cache when any configuration that may hold credentials is saved. Stores that are not provided
+     * by this plugin (for example folder scoped stores) persist through their context object, so we cannot be more
+     * selective than this. Build records and fingerprints are excluded as they are saved far more frequently than
+     * they could hold credentials.
+     */
+    @Extension
+    @Restricted(NoExternalUse.class)
+    public static class SaveableListenerImpl extends SaveableListener {
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onChange(Saveable o, XmlFile file) {
+            if (!(o instanceof Run) && !(o instanceof Fingerprint)) {
+                invalidate();
+            }
+        }
+    }
+}
@@ -25,6 +25,7 @@ package com.cloudbees.plugins.credentials;
 
 import com.cloudbees.plugins.credentials.builds.CredentialsParameterBinding;
 import com.cloudbees.plugins.credentials.builds.CredentialsParameterBinder;
+import com.cloudbees.plugins.credentials.builds.RunCredentialsContext;
 import com.cloudbees.plugins.credentials.common.IdCredentials;
 import com.cloudbees.plugins.credentials.domains.DomainRequirement;
 import com.cloudbees.plugins.credentials.fingerprints.ItemCredentialsFingerprintFacet;
@@ -38,7 +39,6 @@ import hudson.ExtensionList;
 import hudson.ExtensionPoint;
 import hudson.Util;
 import hudson.init.InitMilestone;
-import hudson.model.Cause;
 import hudson.model.Computer;
 import hudson.model.ComputerSet;
 import hudson.model.Describable;
@@ -69,14 +69,16 @@ import java.security.DigestOutputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.text.Collator;
-import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
@@ -84,9 +86,12 @@ import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import jenkins.model.FingerprintFacet;
 import jenkins.model.Jenkins;
 import jenkins.util.Timer;
@@ -212,6 +217,11 @@ public abstract class CredentialsProvider extends Descriptor<CredentialsProvider
      */
     @Restricted(NoExternalUse.class)
     /* package-protected */ static /* not final */ boolean FINGERPRINT_ENABLED = Boolean.parseBoolean(System.getProperty(FINGERPRINT_ENABLED_NAME, "true"));
+
+    /**
+     * A cache of the results of {@link #isEnabled()} and {@link #isApplicable(Class)}.
+     */
+    private transient volatile ConfigurationMemo memo;
     
     /**
      * Default constructor.
@@ -379,29 +389,98 @@ public abstract class CredentialsProvider extends Descriptor<CredentialsProvider
             LOGGER.log(Level.FINE, "Original credentials for resolving: {0}", originals);
             return resolver.resolve(originals);
         }
+        final ItemGroup context = itemGroup;
+        final Authentication auth = authentication;
+        final List<DomainRequirement> requirements = domainRequirements;
+        return CredentialsLookupCache.lookup(type, context, auth, requirements,
+                () -> sweepCredentialsInItemGroup(type, context, auth, requirements));
+    }
+
+    /**
+     * Queries all the enabled {@link CredentialsProvider}s for the credentials available in the {@link ItemGroup}.
+     *
+     * @param type               the type of credentials to get.
+     * @param itemGroup          the item group.
+     * @param authentication     the authentication.
+     * @param domainRequirements the credential domains to match.
+     * @param <C>                the credentials type.
+     * @return the list of credentials, de-duplicated by ID in provider order.
+     */
+    @NonNull
+    private static <C extends Credentials> List<C> sweepCredentialsInItemGroup(@NonNull Class<C> type,
+                                                                             @NonNull ItemGroup itemGroup,
+                                                                             @NonNull Authentication authentication,
+                                                                             @NonNull List<DomainRequirement>
+                                                                                     domainRequirements) {
+        return sweepCredentials(type, itemGroup,
+                provider -> provider.getCredentialsInItemGroup(type, itemGroup, authentication, domainRequirements));
+    }
+
+    /**
+     * Queries the enabled and applicable {@link CredentialsProvider}s, either one after the other or, if
+     * {@link ParallelCredentialsLookup#isEnabled()}, concurrently.
+     *
+     * @param type    the type of credentials to get.
+     * @param context the context of the lookup.
+     * @param query   queries a provider.
+     * @param <C>     the credentials type.
+     * @return the list of credentials, de-duplicated by ID in provider order.
+     */
+    @NonNull
+    private static <C extends Credentials> List<C> sweepCredentials(@NonNull Class<C> type,
+                                                                  @NonNull Object context,
+                                                                  @NonNull Function<CredentialsProvider, List<C>>
+                                                                          query) {
+        List<CredentialsProvider> providers = new ArrayList<>();
+        for (CredentialsProvider provider : enabledProviders(context)) {
+            if (provider.isApplicable(type)) {
+                providers.add(provider);
+            }
+        }
         List<C> result = new ArrayList<>();
         Set<String> ids = new HashSet<>();
-        for (CredentialsProvider provider : all()) {
-            if (provider.isEnabled(itemGroup) && provider.isApplicable(type)) {
-                LOGGER.fine(() -> "checking " + provider + " for " + type);
-                try {
-                    for (C c : provider.getCredentialsInItemGroup(type, itemGroup, authentication, domainRequirements)) {
-                        if (!(c instanceof IdCredentials) || ids.add(((IdCredentials) c).getId())) {
-                            // if IdCredentials, only add if we haven't added already
-                            // if not IdCredentials, always add
-                            result.add(c);
-                            LOGGER.fine(() -> "got " + c + " from " + provider);
-                        }
-                    }
-                } catch (NoClassDefFoundError e) {
-                    LOGGER.log(Level.FINE, "Could not retrieve provider credentials from " + provider
-                            + " likely due to missing optional dependency", e);
-                }
+        if (ParallelCredentialsLookup.isEnabled() && providers.size() > 1) {
+            LOGGER.fine(() -> "checking " + providers + " in parallel for " + type);
+            List<List<C>> results = ParallelCredentialsLookup.query(providers, query);
+            for (int i = 0; i < providers.size(); i++) {
+                addCredentials(result, ids, providers.get(i), results.get(i));
+            }
+            return result;
+        }
+        for (CredentialsProvider provider : providers) {
+            LOGGER.fine(() -> "checking " + provider + " for " + type);
+            try {
+                addCredentials(result, ids, provider, query.apply(provider));
+            } catch (NoClassDefFoundError e) {
+                LOGGER.log(Level.FINE, "Could not retrieve provider credentials from " + provider
+                        + " likely due to missing optional dependency", e);
             }
         }
         return result;
     }
 
+    /**
+     * Adds the credentials supplied by a provider to the result.
+     *
+     * @param result      the result.
+     * @param ids         the IDs already in the result.
+     * @param provider    the provider.
+     * @param credentials the credentials supplied by the provider.
+     * @param <C>         the credentials type.
+     */
+    private static <C extends Credentials> void addCredentials(@NonNull List<C> result, @NonNull Set<String> ids,
+                                                               @NonNull CredentialsProvider provider,
+                                                               @NonNull List<C> credentials) {
+        for (C c : credentials) {
+            if (!(c instanceof IdCredentials) || ids.add(((IdCredentials) c).getId())) {
+                // if IdCredentials, only add if we haven't added already
+                // if not IdCredentials, always add
+                result.add(c);
+                LOGGER.fine(() -> "got " + c + " from " + provider);
+            }
+        }
+    }
+
     /**
      * @deprecated Use {@link #listCredentialsInItemGroup(Class, ItemGroup, Authentication, List, CredentialsMatcher)} instead.
      */
@@ -451,8 +530,8 @@ public abstract class CredentialsProvider extends Descriptor<CredentialsProvider
         }
         ListBoxModel result = new ListBoxModel();
         Set<String> ids = new HashSet<>();
-        for (CredentialsProvider provider : all()) {
-            if (provider.isEnabled(itemGroup) && provider.isApplicable(type)) {
+        for (CredentialsProvider provider : enabledProviders(itemGroup)) {
+            if (provider.isApplicable(type)) {
                 try {
                     for (ListBoxModel.Option option : provider.getCredentialIdsInItemGroup(
                             type, itemGroup, authentication, domainRequirements, matcher)
@@ -555,27 +634,134 @@ public abstract class CredentialsProvider extends Descriptor<CredentialsProvider
             LOGGER.log(Level.FINE, "Original credentials for resolving: {0}", originals);
             return resolver.resolve(originals);
         }
-        List<C> result = new ArrayList<>();
-        Set<String> ids = new HashSet<>();
-        for (CredentialsProvider provider : all()) {
-            if (provider.isEnabled(item) && provider.isApplicable(type)) {
-                LOGGER.fine(() -> "checking " + provider + " for " + type);
-                try {
-                    for (C c: provider.getCredentialsInItem(type, item, authentication, domainRequirements)) {
-                        if (!(c instanceof IdCredentials) || ids.add(((IdCredentials) c).getId())) {
-                            // if IdCredentials, only add if we haven't added already
-                            // if not IdCredentials, always add
-                            result.add(c);
-                            LOGGER.fine(() -> "got " + c + " from " + provider);
-                        }
-                    }
-                } catch (NoClassDefFoundError e) {
-                    LOGGER.log(Level.FINE, "Could not retrieve provider credentials from " + provider
-                            + " likely due to missing optional dependency", e);
-                }
-            }
+        final Authentication auth = authentication;
+        final List<DomainRequirement> requirements = domainRequirements;
+        return CredentialsLookupCache.lookup(type, item, auth, requirements,
+                () -> sweepCredentialsInItem(type, item, auth, requirements));
+    }
+
+    /**
+     * Queries all the enabled {@link CredentialsProvider}s for the credentials available to the {@link Item}.
+     *
+     * @param type               the type of credentials to get.
+     * @param item               the item.
+     * @param authentication     the authentication.
+     * @param domainRequirements the credential domains to match.
+     * @param <C>                the credentials type.
+     * @return the list of credentials, de-duplicated by ID in provider order.
+     */
+    @NonNull
+    private static <C extends Credentials> List<C> sweepCredentialsInItem(@NonNull Class<C> type,
+                                                                        @NonNull Item item,
+                                                                        @NonNull Authentication authentication,
+                                                                        @NonNull List<DomainRequirement>
+                                                                                domainRequirements) {
+        return sweepCredentials(type, item,
+                provider -> provider.getCredentialsInItem(type, item, authentication, domainRequirements));
+    }
+
+    /**
+     * Returns a lazy stream of the credentials which are available to the specified {@link Authentication}
+     * for use by the {@link Item}s in the specified {@link ItemGroup}. The stream contains the same credentials in
+     * the same order as {@link #lookupCredentialsInItemGroup(Class, ItemGroup, Authentication, List)} but the
+     * {@link CredentialsProvider}s are only queried as the stream is consumed, so short-circuiting operations such as
+     * {@link Stream#findFirst()} do not touch the providers after the first match.
+     *
+     * @param type               the type of credentials to get.
+     * @param itemGroup          the item group.
+     * @param authentication     the authentication.
+     * @param domainRequirements the credential domains to match.
+     * @param <C>                the credentials type.
+     * @return the stream of credentials.
+     * @since TODO
+     */
+    @NonNull
+    public static <C extends Credentials> Stream<C> streamCredentialsInItemGroup(@NonNull Class<C> type,
+                                                                               @Nullable ItemGroup itemGroup,
+                                                                               @Nullable Authentication authentication,
+                                                                               @Nullable List<DomainRequirement>
+                                                                                       domainRequirements) {
+        Objects.requireNonNull(type);
+        final ItemGroup context = itemGroup == null ? Jenkins.get() : itemGroup;
+        final Authentication auth = authentication == null ? ACL.SYSTEM2 : authentication;
+        final List<DomainRequirement> requirements =
+                domainRequirements == null ? Collections.emptyList() : domainRequirements;
+        if (CredentialsResolver.getResolver(type) != null || CredentialsLookupCache.isEnabled()) {
+            // resolvers need the complete list of the legacy type and the cache holds complete lists anyway
+            return lookupCredentialsInItemGroup(type, context, auth, requirements).stream();
         }
-        return result;
+        return streamFromProviders(type, context,
+                provider -> provider.getCredentialsStreamInItemGroup(type, context, auth, requirements));
+    }
+
+    /**
+     * Returns a lazy stream of the credentials which are available to the specified {@link Authentication}
+     * for use by the specified {@link Item}. The stream contains the same credentials in the same order as
+     * {@link #lookupCredentialsInItem(Class, Item, Authentication, List)} but the {@link CredentialsProvider}s are
+     * only queried as the stream is consumed.
+     *
+     * @param type               the type of credentials to get.
+     * @param item               the item.
+     * @param authentication     the authentication.
+     * @param domainRequirements the credential domains to match.
+     * @param <C>                the credentials type.
+     * @return the stream of credentials.
+     * @since TODO
+     */
+    @NonNull
+    public static <C extends Credentials> Stream<C> streamCredentialsInItem(@NonNull Class<C> type,
+                                                                          @Nullable Item item,
+                                                                          @Nullable Authentication authentication,
+                                                                          @Nullable List<DomainRequirement>
+                                                                                  domainRequirements) {
+        Objects.requireNonNull(type);
+        if (item == null) {
+            return streamCredentialsInItemGroup(type, Jenkins.get(), authentication, domainRequirements);
+        }
+        if (item instanceof ItemGroup) {
+            return streamCredentialsInItemGroup(type, (ItemGroup) item, authentication, domainRequirements);
+        }
+        final Authentication auth = authentication == null ? ACL.SYSTEM2 : authentication;
+        final List<DomainRequirement> requirements =
+                domainRequirements == null ? Collections.emptyList() : domainRequirements;
+        if (CredentialsResolver.getResolver(type) != null || CredentialsLookupCache.isEnabled()) {
+            // resolvers need the complete list of the legacy type and the cache holds complete lists anyway
+            return lookupCredentialsInItem(type, item, auth, requirements).stream();
+        }
+        return streamFromProviders(type, item,
+                provider -> provider.getCredentialsStreamInItem(type, item, auth, requirements));
+    }
+
+    /**
+     * Lazily concatenates the credentials from the enabled and applicable {@link CredentialsProvider}s, dropping any
+     * {@link IdCredentials} whose ID was already supplied by an earlier provider.
+     *
+     * @param type    the type of credentials.
+     * @param context the context of the lookup.
+     * @param query   queries a provider.
+     * @param <C>     the credentials type.
+     * @return the stream of credentials.
+     */
+    @NonNull
+    private static <C extends Credentials> Stream<C> streamFromProviders(@NonNull Class<C> type,
+                                                                       @NonNull Object context,
+                                                                       @NonNull Function<CredentialsProvider,
+                                                                               Stream<C>> query) {
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+        return enabledProviders(context).stream()
+                .filter(provider -> provider.isApplicable(type))
+                .flatMap(provider -> {
+                    LOGGER.fine(() -> "checking " + provider + " for " + type);
+                    try {
+                        return query.apply(provider);
+                    } catch (NoClassDefFoundError e) {
+                        LOGGER.log(Level.FINE, "Could not retrieve provider credentials from " + provider
+                                + " likely due to missing optional dependency", e);
+                        return Stream.empty();
+                    }
+                })
+                // if IdCredentials, only keep if we haven't seen the ID already
+                .filter(c -> !(c instanceof IdCredentials) || ids.add(((IdCredentials) c).getId()));
     }
 
     /**
@@ -632,8 +818,8 @@ public abstract class CredentialsProvider extends Descriptor<CredentialsProvider
         }
         ListBoxModel result = new ListBoxModel();
         Set<String> ids = new HashSet<>();
-        for (CredentialsProvider provider : all()) {
-            if (provider.isEnabled(item) && provider.isApplicable(type)) {
+        for (CredentialsProvider provider : enabledProviders(item)) {
+            if (provider.isApplicable(type)) {
                 try {
                     for (ListBoxModel.Option option : provider.getCredentialIdsInItem(
                             type, item, authentication, domainRequirements, matcher == null ? CredentialsMatchers.always() : matcher)
@@ -664,20 +850,18 @@ public abstract class CredentialsProvider extends Descriptor<CredentialsProvider
     public static Set<CredentialsScope> lookupScopes(ModelObject object) {
         object = CredentialsDescriptor.unwrapContext(object);
         Set<CredentialsScope> result = null;
-        for (CredentialsProvider provider : all()) {
-            if (provider.isEnabled(object)) {
-                try {
-                    Set<CredentialsScope> scopes = provider.getScopes(object);
-                    if (scopes != null) {
-                        // if multiple providers for the same object, then combine scopes
-                        if (result == null) {
-                            result = new LinkedHashSet<>();
-                        }
-                        result.addAll(scopes);
+        for (CredentialsProvider provider : enabledProviders(object)) {
+            try {
+                Set<CredentialsScope> scopes = provider.getScopes(object);
+                if (scopes != null) {
+                    // if multiple providers for the same object, then combine scopes
+                    if (result == null) {
+                        result = new LinkedHashSet<>();
                     }
-                } catch (NoClassDefFoundError e) {
-                    // ignore optional dependency
+                    result.addAll(scopes);
                 }
+            } catch (NoClassDefFoundError e) {
+                // ignore optional dependency
             }
         }
         return result;
@@ -692,8 +876,8 @@ public abstract class CredentialsProvider extends Descriptor<CredentialsProvider
      * @since 2.1.5
      */
     public static boolean hasStores(final ModelObject context) {
-        for (CredentialsProvider p : all()) {
-            if (p.isEnabled(context) && p.getStore(context) != null) {
+        for (CredentialsProvider p : enabledProviders(context)) {
+            if (p.getStore(context) != null) {
                 return true;
             }
         }
@@ -709,7 +893,7 @@ public abstract class CredentialsProvider extends Descriptor<CredentialsProvider
      * @since 1.8
      */
     public static Iterable<CredentialsStore> lookupStores(final ModelObject context) {
-        final ExtensionList<CredentialsProvider> providers = all();
+        final List<CredentialsProvider> providers = enabledProviders(context);
         return () -> new Iterator<CredentialsStore>() {
             private ModelObject current = context;
             private Iterator<CredentialsProvider> iterator = providers.iterator();
@@ -722,9 +906,6 @@ public abstract class CredentialsProvider extends Descriptor<CredentialsProvider
                 while (current != null) {
                     while (iterator.hasNext()) {
                         CredentialsProvider p = iterator.next();
-                        if (!p.isEnabled(context)) {
-                            continue;
-                        }
                         next = p.getStore(current);
                         if (next != null) {
                             return true;
@@ -878,9 +1059,13 @@ public abstract class CredentialsProvider extends Descriptor<CredentialsProvider
             domainRequirements = List.of();
         }
         var g = itemGroup;
+        if (CredentialsLookupCache.isMissing(id, type, itemGroup, authentication, domainRequirements)) {
+            return null;
+        }
+        long generation = CredentialsLookupCache.generation();
         LOGGER.fine(() -> "looking for " + id + " of " + type + " in " + g);
-        for (CredentialsProvider provider : all()) {
-            if (provider.isEnabled(itemGroup) && provider.isApplicable(type)) {
+        for (CredentialsProvider provider : enabledProviders(itemGroup)) {
+            if (provider.isApplicable(type)) {
                 LOGGER.fine(() -> "checking " + provider + " for " + id);
                 C credential = provider.getCredentialByIdInItemGroup(id, type, itemGroup, authentication, domainRequirements);
                 if (credential != null) {
@@ -890,6 +1075,7 @@ public abstract class CredentialsProvider extends Descriptor<CredentialsProvider
             }
         }
         LOGGER.fine(() -> "did not find " + id);
+        CredentialsLookupCache.recordMissing(generation, id, type, itemGroup, authentication, domainRequirements);
         return null;
     }
 
@@ -925,9 +1111,13 @@ public abstract class CredentialsProvider extends Descriptor<CredentialsProvider
         if (domainRequirements == null) {
             domainRequirements = List.of();
         }
+        if (CredentialsLookupCache.isMissing(id, type, item, authentication, domainRequirements)) {
+            return null;
+        }
+        long generation = CredentialsLookupCache.generation();
         LOGGER.fine(() -> "looking for " + id + " of " + type + " in " + item);
-        for (CredentialsProvider provider : all()) {
-            if (provider.isEnabled(item) && provider.isApplicable(type)) {
+        for (CredentialsProvider provider : enabledProviders(item)) {
+            if (provider.isApplicable(type)) {
                 LOGGER.fine(() -> "checking " + provider + " for " + id);
                 C credential = provider.getCredentialByIdInItem(id, type, item, authentication, domainRequirements);
                 if (credential != null) {
@@ -937,6 +1127,7 @@ public abstract class CredentialsProvider extends Descriptor<CredentialsProvider
             }
         }
         LOGGER.fine(() -> "did not find " + id);
+        CredentialsLookupCache.recordMissing(generation, id, type, item, authentication, domainRequirements);
         return null;
     }
 
@@ -989,84 +1180,242 @@ public abstract class CredentialsProvider extends Descriptor<CredentialsProvider
                                                                  @NonNull Run<?, ?> run,
                                                                  @Nullable List<DomainRequirement> domainRequirements) {
         Objects.requireNonNull(id);
+        return findCredentialsById(List.of(id), type, run, domainRequirements).get(id);
+    }
+
+    /**
+     * Resolves several credentials by id in the context of a specific run, returning the same results as calling
+     * {@link #findCredentialById(String, Class, Run, List)} for each id in turn. The authentication context of the
+     * run is only determined once and each authentication that needs to be consulted only queries the
+     * {@link CredentialsProvider}s once for all the ids, which makes this the preferred method when a build needs more
+     * than one credential.
+     *
+     * @param ids                the ids of the credentials to find, each either the id of a credential or a parameter
+     *                           expression for the id.
+     * @param type               the type of credential to find.
+     * @param run                the {@link Run} defining the context within which to find the credential.
+     * @param domainRequirements the domain requirements of the credential.
+     * @param <C>                the credentials type.
+     * @return the credentials keyed by the supplied ids, in the order of the supplied ids. Ids whose credential cannot
+     * be found or which the user triggering the run is not permitted to use in the context of the run are omitted.
+     * @since TODO
+     */
+    @NonNull
+    public static <C extends IdCredentials> Map<String, C> findCredentialsById(@NonNull Collection<String> ids,
+                                                                            @NonNull Class<C> type,
+                                                                            @NonNull Run<?, ?> run,
+                                                                            @Nullable List<DomainRequirement>
+                                                                                    domainRequirements) {
+        Objects.requireNonNull(ids);
         Objects.requireNonNull(type);
         Objects.requireNonNull(run);
-
-        // first we need to find out if this id is pre-selected or a parameter
-        id = id.trim();
-        boolean isParameter = false;
-        boolean isDefaultValue = false;
-        String inputUserId = null;
-        final String parameterName;
-        if (id.startsWith("${") && id.endsWith("}")) {
-            // denotes explicitly that this is a parameterized credential
-            parameterName = id.substring(2, id.length() - 1);
-        } else {
-            // otherwise, we can check to see if there is a matching credential parameter name that shadows an
-            // existing global credential id
-            parameterName = id;
+        if (ids.isEmpty()) {
+            return new LinkedHashMap<>();
         }
-        final CredentialsParameterBinder binder = CredentialsParameterBinder.getOrCreate(run);
-        final CredentialsParameterBinding binding = binder.forParameterName(parameterName);
-        if (binding != null) {
-            isParameter = true;
-            inputUserId = binding.getUserId();
-            isDefaultValue = binding.isDefaultValue();
-            id = Util.fixNull(binding.getCredentialsId());
+        if (domainRequirements == null) {
+            domainRequirements = List.of();
         }
+        final Item item = run.getParent();
+        final CredentialsParameterBinder binder = CredentialsParameterBinder.getOrCreate(run);
+        final List<ByIdRequest<C>> requests = new ArrayList<>(ids.size());
         // non parameters or default parameter values can only come from the job's context
-        if (!isParameter || isDefaultValue) {
-            // we use the default authentication of the job as those are the only ones that can be configured
-            // if a different strategy is in play it doesn't make sense to consider the run-time authentication
-            // as you would have no way to configure it
-            Authentication runAuth = CredentialsProvider.getDefaultAuthenticationOf2(run.getParent());
-            // we want the credentials available to the user the build is running as
-            C credential = findCredentialByIdInItem(id, type, run.getParent(), runAuth, domainRequirements);
-            // if that user can use the item's credentials, try those too
-            if (credential == null && runAuth != ACL.SYSTEM2 && run.hasPermission2(runAuth, CredentialsProvider.USE_ITEM)) {
-                credential = findCredentialByIdInItem(id, type, run.getParent(), ACL.SYSTEM2, domainRequirements);
+        final List<ByIdRequest<C>> fromItem = new ArrayList<>(ids.size());
+        final List<ByIdRequest<C>> supplied = new ArrayList<>();
+        for (String id : ids) {
+            Objects.requireNonNull(id);
+            // first we need to find out if this id is pre-selected or a parameter
+            String credentialsId = id.trim();
+            final String parameterName;
+            if (credentialsId.startsWith("${") && credentialsId.endsWith("}")) {
+                // denotes explicitly that this is a parameterized credential
+                parameterName = credentialsId.substring(2, credentialsId.length() - 1);
+            } else {
+                // otherwise, we can check to see if there is a matching credential parameter name that shadows an
+                // existing global credential id
+                parameterName = credentialsId;
+            }
+            final CredentialsParameterBinding binding = binder.forParameterName(parameterName);
+            ByIdRequest<C> request;
+            if (binding == null) {
+                request = new ByIdRequest<>(id, credentialsId, false, null);
+                fromItem.add(request);
+            } else if (binding.isDefaultValue()) {
+                request = new ByIdRequest<>(id, Util.fixNull(binding.getCredentialsId()), false, null);
+                fromItem.add(request);
+            } else {
+                request = new ByIdRequest<>(id, Util.fixNull(binding.getCredentialsId()), true,
+                        binding.getUserId());
+                supplied.add(request);
+            }
+            requests.add(request);
+        }
+        final RunCredentialsContext context = RunCredentialsContext.of(run);
+        if (!supplied.isEmpty()) {
+            // this is a parameter and not the default value, we need to determine who triggered the build
+            final Authentication a = context.getAuthentication();
+            if (context.isTriggeredDirectly() && context.hasPermission(a, CredentialsProvider.USE_OWN)) {
+                // the user triggered this job directly and they are allowed to supply their own credentials, so
+                // search those first. We do not want to follow the chain for the user's authentication
+                // though, as there is no way to limit how far the passed-through parameters can be used
+                resolveCredentialsById(supplied, type, item, a, domainRequirements);
+            }
+            final Map<String, List<ByIdRequest<C>>> byInputUser = new LinkedHashMap<>();
+            for (ByIdRequest<C> request : supplied) {
+                if (request.credential == null && request.inputUserId != null) {
+                    byInputUser.computeIfAbsent(request.inputUserId, k -> new ArrayList<>()).add(request);
+                }
             }
-            // TODO should this be calling track?
-            return contextualize(type, credential, run);
-        }
-        // this is a parameter and not the default value, we need to determine who triggered the build
-        final Map.Entry<User, Run<?, ?>> triggeredBy = triggeredBy(run);
-        final Authentication a = triggeredBy == null ? Jenkins.ANONYMOUS2 : triggeredBy.getKey().impersonate2();
-        C result = null;
-        if (triggeredBy != null && run == triggeredBy.getValue() && run.hasPermission2(a, CredentialsProvider.USE_OWN)) {
-            // the user triggered this job directly and they are allowed to supply their own credentials, so
-            // search those first. We do not want to follow the chain for the user's authentication
-            // though, as there is no way to limit how far the passed-through parameters can be used
-            result = findCredentialByIdInItem(id, type, run.getParent(), a, domainRequirements);
-        }
-        if (result == null && inputUserId != null) {
-            final User inputUser = User.getById(inputUserId, false);
-            if (inputUser != null) {
-                final Authentication inputAuth = inputUser.impersonate2();
-                if (run.hasPermission2(inputAuth, CredentialsProvider.USE_OWN)) {
-                    result = findCredentialByIdInItem(id, type, run.getParent(), inputAuth, domainRequirements);
+            for (Map.Entry<String, List<ByIdRequest<C>>> entry : byInputUser.entrySet()) {
+                final Authentication inputAuth = context.getAuthentication(entry.getKey());
+                if (inputAuth != null && context.hasPermission(inputAuth, CredentialsProvider.USE_OWN)) {
+                    resolveCredentialsById(entry.getValue(), type, item, inputAuth, domainRequirements);
+                }
+            }
+            if (context.hasPermission(a, CredentialsProvider.USE_ITEM)) {
+                // the triggering user is allowed to use the item's credentials, so search those
+                for (ByIdRequest<C> request : supplied) {
+                    if (request.credential == null) {
+                        fromItem.add(request);
+                    }
                 }
             }
         }
-        if (result == null && run.hasPermission2(a, CredentialsProvider.USE_ITEM)) {
-            // the triggering user is allowed to use the item's credentials, so search those
+        if (!fromItem.isEmpty()) {
             // we use the default authentication of the job as those are the only ones that can be configured
             // if a different strategy is in play it doesn't make sense to consider the run-time authentication
             // as you would have no way to configure it
-            Authentication runAuth = CredentialsProvider.getDefaultAuthenticationOf2(run.getParent());
+            Authentication runAuth = CredentialsProvider.getDefaultAuthenticationOf2(item);
             // we want the credentials available to the user the build is running as
-            result = findCredentialByIdInItem(id, type, run.getParent(), runAuth, domainRequirements);
+            boolean unresolved = resolveCredentialsById(fromItem, type, item, runAuth, domainRequirements);
             // if that user can use the item's credentials, try those too
-            if (result == null && runAuth != ACL.SYSTEM2 && run.hasPermission2(runAuth, CredentialsProvider.USE_ITEM)) {
-                result = findCredentialByIdInItem(id, type, run.getParent(), ACL.SYSTEM2, domainRequirements);
+            if (unresolved && runAuth != ACL.SYSTEM2 && context.hasPermission(runAuth, CredentialsProvider.USE_ITEM)) {
+                resolveCredentialsById(fromItem, type, item, ACL.SYSTEM2, domainRequirements);
             }
         }
         // if the run has not completed yet then we can safely assume that the credential is being used for this run
         // so we will track it's usage. We use isLogUpdated() as it could be used during post production
-        if (run.isLogUpdated()) {
-            track(run, result);
+        // TODO should this be tracking credentials that were not supplied as parameters?
+        final boolean track = !supplied.isEmpty() && run.isLogUpdated();
+        final Map<String, C> result = new LinkedHashMap<>();
+        for (ByIdRequest<C> request : requests) {
+            if (request.credential != null) {
+                if (track && request.supplied) {
+                    track(run, request.credential);
+                }
+                result.put(request.id, contextualize(type, request.credential, run));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Resolves the unresolved requests of a {@link #findCredentialsById(Collection, Class, Run, List)} with a single
+     * pass over the {@link CredentialsProvider}s.
+     *
+     * @param requests           the requests.
+     * @param type               the type of credential to find.
+     * @param item               the item.
+     * @param authentication     the authentication.
+     * @param domainRequirements the credential domains to match.
+     * @param <C>                the credentials type.
+     * @return {@code true} if some requests are still unresolved.
+     */
+    private static <C extends IdCredentials> boolean resolveCredentialsById(@NonNull List<ByIdRequest<C>> requests,
+                                                                            @NonNull Class<C> type,
+                                                                            @NonNull Item item,
+                                                                            @NonNull Authentication authentication,
+                                                                            @NonNull List<DomainRequirement>
+                                                                                    domainRequirements) {
+        final ItemGroup<?> group = item instanceof ItemGroup<?> g ? g : null;
+        final Object context = group != null ? group : item;
+        final Set<String> pending = new LinkedHashSet<>();
+        boolean unresolved = false;
+        for (ByIdRequest<C> request : requests) {
+            if (request.credential == null) {
+                if (CredentialsLookupCache.isMissing(request.credentialsId, type, context, authentication,
+                        domainRequirements)) {
+                    unresolved = true;
+                } else {
+                    pending.add(request.credentialsId);
+                }
+            }
+        }
+        if (pending.isEmpty()) {
+            return unresolved;
+        }
+        final long generation = CredentialsLookupCache.generation();
+        final Map<String, C> found = new HashMap<>();
+        LOGGER.fine(() -> "looking for " + pending + " of " + type + " in " + item);
+        for (CredentialsProvider provider : enabledProviders(context)) {
+            if (!provider.isApplicable(type)) {
+                continue;
+            }
+            LOGGER.fine(() -> "checking " + provider + " for " + pending);
+            for (Iterator<String> iterator = pending.iterator(); iterator.hasNext(); ) {
+                String id = iterator.next();
+                C credential = group != null
+                        ? provider.getCredentialByIdInItemGroup(id, type, group, authentication, domainRequirements)
+                        : provider.getCredentialByIdInItem(id, type, item, authentication, domainRequirements);
+                if (credential != null) {
+                    LOGGER.fine(() -> "found " + credential + " in " + provider);
+                    found.put(id, credential);
+                    iterator.remove();
+                }
+            }
+            if (pending.isEmpty()) {
+                break;
+            }
+        }
+        for (String id : pending) {
+            CredentialsLookupCache.recordMissing(generation, id, type, context, authentication, domainRequirements);
+        }
+        for (ByIdRequest<C> request : requests) {
+            if (request.credential == null) {
+                request.credential = found.get(request.credentialsId);
+                unresolved |= request.credential == null;
+            }
+        }
+        return unresolved;
+    }
+
+    /**
+     * The state of resolving one of the ids of a {@link #findCredentialsById(Collection, Class, Run, List)}.
+     *
+     * @param <C> the credentials type.
+     */
+    private static final class ByIdRequest<C extends IdCredentials> {
+        /**
+         * The id as supplied by the caller.
+         */
+        @NonNull
+        private final String id;
+        /**
+         * The id of the credential once any parameter has been bound.
+         */
+        @NonNull
+        private final String credentialsId;
+        /**
+         * {@code true} if the credential was supplied as a (non-default) parameter value.
+         */
+        private final boolean supplied;
+        /**
+         * The user that supplied the parameter value, if known.
+         */
+        @CheckForNull
+        private final String inputUserId;
+        /**
+         * The credential, once resolved.
+         */
+        @CheckForNull
+        private C credential;
+
+        ByIdRequest(@NonNull String id, @NonNull String credentialsId, boolean supplied,
+                    @CheckForNull String inputUserId) {
+            this.id = id;
+            this.credentialsId = credentialsId;
+            this.supplied = supplied;
+            this.inputUserId = inputUserId;
         }
-        return contextualize(type, result, run);
     }
 
     @CheckForNull
@@ -1082,34 +1431,6 @@ public abstract class CredentialsProvider extends Descriptor<CredentialsProvider
         return credentials;
     }
 
-    /**
-     * Identifies the {@link User} and {@link Run} that triggered the supplied {@link Run}.
-     *
-     * @param run the {@link Run} to find the trigger of.
-     * @return the trigger of the supplied run or {@code null} if this could not be determined.
-     */
-    @CheckForNull
-    private static Map.Entry<User, Run<?, ?>> triggeredBy(Run<?, ?> run) {
-        Cause.UserIdCause cause = run.getCause(Cause.UserIdCause.class);
-        if (cause != null) {
-            User u = User.get(cause.getUserId(), false, Collections.emptyMap());
-            return u == null ? null : new AbstractMap.SimpleImmutableEntry<>(u, run);
-        }
-        Cause.UpstreamCause c = run.getCause(Cause.UpstreamCause.class);
-        run = (c != null) ? c.getUpstreamRun() : null;
-        while (run != null) {
-            cause = run.getCause(Cause.UserIdCause.class);
-            if (cause != null) {
-                User u = User.get(cause.getUserId(), false, Collections.emptyMap());
-                return u == null ? null : new AbstractMap.SimpleImmutableEntry<>(u, run);
-            }
-            c = run.getCause(Cause.UpstreamCause.class);
-
-            run = (c != null) ? c.getUpstreamRun() : null;
-        }
-        return null;
-    }
-
     /**
      * Returns the list of all {@link CredentialsProvider}.
      *
@@ -1140,10 +1461,42 @@ public abstract class CredentialsProvider extends Descriptor<CredentialsProvider
      * @since 2.0
      */
     public static List<CredentialsProvider> enabled(Object context) {
-        return ExtensionList.lookup(CredentialsProvider.class)
-                .stream()
-                .filter(p -> p.isEnabled(context))
-                .collect(Collectors.toList());
+        return new ArrayList<>(enabledProviders(context));
+    }
+
+    /**
+     * Returns the {@link CredentialsProvider}s that are {@link #isEnabled(Object)} within a specific context.
+     * <p>
+     * When the only {@link DescriptorVisibilityFilter} installed is the {@link CredentialsProviderManager}, whether a
+     * provider is enabled depends on the class of the context alone, so the result is reused for every context of
+     * the same class until {@link CredentialsProviderManager#getConfigurationVersion()} changes. Providers that
+     * override {@link #isEnabled(Object)} are always asked.
+     *
+     * @param context the context in which to get the list.
+     * @return an unmodifiable list of the enabled {@link CredentialsProvider}s in extension order.
+     */
+    @NonNull
+    private static List<CredentialsProvider> enabledProviders(@CheckForNull Object context) {
+        EnabledProviders snapshot = EnabledProviders.current();
+        if (!snapshot.byContextClassSafe) {
+            return snapshot.providers.stream()
+                    .filter(p -> p.isEnabled(context))
+                    .collect(Collectors.toUnmodifiableList());
+        }
+        Class<?> key = context == null ? Void.class : context.getClass();
+        List<CredentialsProvider> candidates = snapshot.byContextClass.get(key);
+        if (candidates == null) {
+            candidates = snapshot.providers.stream()
+                    .filter(p -> snapshot.contextSensitive.contains(p) || p.isEnabled(context))
+                    .collect(Collectors.toUnmodifiableList());
+            snapshot.byContextClass.put(key, candidates);
+        }
+        if (snapshot.contextSensitive.isEmpty()) {
+            return candidates;
+        }
+        return candidates.stream()
+                .filter(p -> !snapshot.contextSensitive.contains(p) || p.isEnabled(context))
+                .collect(Collectors.toUnmodifiableList());
     }
 
     /**
@@ -1161,7 +1514,13 @@ public abstract class CredentialsProvider extends Descriptor<CredentialsProvider
      * @since 2.0
      */
     public final boolean isEnabled() {
-        return CredentialsProviderManager.isEnabled(this);
+        ConfigurationMemo memo = memo();
+        Boolean enabled = memo.enabled;
+        if (enabled == null) {
+            enabled = CredentialsProviderManager.isEnabled(this);
+            memo.enabled = enabled;
+        }
+        return enabled;
     }
 
     /**
@@ -1281,6 +1640,31 @@ public abstract class CredentialsProvider extends Descriptor<CredentialsProvider
         throw new AbstractMethodError("Implement getCredentialsInItemGroup from " + getClass());
     }
 
+    /**
+     * Returns a stream of the credentials provided by this provider which are available to the specified
+     * {@link Authentication} for items in the specified {@link ItemGroup} and are appropriate for the specified
+     * {@link DomainRequirement}s.
+     * <strong>NOTE:</strong> implementations are recommended to override this method if the credentials can be
+     * produced incrementally, so that consumers which stop at the first match avoid the remaining work.
+     * The default implementation streams {@link #getCredentialsInItemGroup(Class, ItemGroup, Authentication, List)}.
+     *
+     * @param type               the type of credentials to return.
+     * @param itemGroup          the item group.
+     * @param authentication     the authentication.
+     * @param domainRequirements the credential domains to match.
+     * @param <C>                the credentials type.
+     * @return the stream of credentials.
+     * @since TODO
+     */
+    @NonNull
+    public <C extends Credentials> Stream<C> getCredentialsStreamInItemGroup(@NonNull Class<C> type,
+                                                                           @NonNull ItemGroup itemGroup,
+                                                                           @NonNull Authentication authentication,
+                                                                           @NonNull List<DomainRequirement>
+                                                                                   domainRequirements) {
+        return getCredentialsInItemGroup(type, itemGroup, authentication, domainRequirements).stream();
+    }
+
     /**
      * @deprecated Use {@link #getCredentialIdsInItemGroup(Class, ItemGroup, Authentication, List, CredentialsMatcher)} instead.
      */
@@ -1437,6 +1821,37 @@ public abstract class CredentialsProvider extends Descriptor<CredentialsProvider
         return getCredentialsInItemFallback(type, item, authentication, domainRequirements);
     }
 
+    /**
+     * Returns a stream of the credentials provided by this provider which are available to the specified
+     * {@link Authentication} for the specified {@link Item} and are appropriate for the specified
+     * {@link DomainRequirement}s.
+     * The default implementation streams {@link #getCredentialsInItem(Class, Item, Authentication, List)} if that
+     * has been overridden and otherwise delegates to
+     * {@link #getCredentialsStreamInItemGroup(Class, ItemGroup, Authentication, List)}.
+     *
+     * @param type               the type of credentials to return.
+     * @param item               the item.
+     * @param authentication     the authentication.
+     * @param domainRequirements the credential domains to match.
+     * @param <C>                the credentials type.
+     * @return the stream of credentials.
+     * @since TODO
+     */
+    @NonNull
+    public <C extends Credentials> Stream<C> getCredentialsStreamInItem(@NonNull Class<C> type,
+                                                                      @NonNull Item item,
+                                                                      @NonNull Authentication authentication,
+                                                                      @NonNull List<DomainRequirement>
+                                                                              domainRequirements) {
+        if (Util.isOverridden(CredentialsProvider.class, getClass(), "getCredentialsInItem", Class.class, Item.class, Authentication.class, List.class)
+                || Util.isOverridden(CredentialsProvider.class, getClass(), "getCredentials", Class.class, Item.class, org.acegisecurity.Authentication.class, List.class)
+                || Util.isOverridden(CredentialsProvider.class, getClass(), "getCredentials", Class.class, Item.class, org.acegisecurity.Authentication.class)) {
+            return getCredentialsInItem(type, item, authentication, domainRequirements).stream();
+        }
+        return getCredentialsStreamInItemGroup(type, item instanceof ItemGroup ? (ItemGroup) item : item.getParent(),
+                authentication, domainRequirements);
+    }
+
     @NonNull
     private <C extends Credentials> List<C> getCredentialsInItemFallback(@NonNull Class<C> type, @NonNull Item item, @Nullable Authentication authentication, @NonNull List<DomainRequirement> domainRequirements) {
         return getCredentialsInItemGroup(type, item instanceof ItemGroup ? (ItemGroup) item : item.getParent(),
@@ -1505,12 +1920,35 @@ public abstract class CredentialsProvider extends Descriptor<CredentialsProvider
         if (!isEnabled()) {
             return false;
         }
-        for (CredentialsDescriptor d : ExtensionList.lookup(CredentialsDescriptor.class)) {
-            if (clazz.isAssignableFrom(d.clazz) && isApplicable(d)) {
-                return true;
+        ConfigurationMemo memo = memo();
+        Boolean applicable = memo.types.get(clazz);
+        if (applicable == null) {
+            applicable = Boolean.FALSE;
+            for (CredentialsDescriptor d : ExtensionList.lookup(CredentialsDescriptor.class)) {
+                if (clazz.isAssignableFrom(d.clazz) && isApplicable(d)) {
+                    applicable = Boolean.TRUE;
+                    break;
+                }
             }
+            memo.types.put(clazz, applicable);
         }
-        return false;
+        return applicable;
+    }
+
+    /**
+     * Returns the memo of decisions for the current {@link CredentialsProviderManager#getConfigurationVersion()}.
+     *
+     * @return the memo of decisions for the current configuration.
+     */
+    @NonNull
+    private ConfigurationMemo memo() {
+        long version = CredentialsProviderManager.getConfigurationVersion();
+        ConfigurationMemo memo = this.memo;
+        if (memo == null || memo.version != version) {
+            memo = new ConfigurationMemo(version);
+            this.memo = memo;
+        }
+        return memo;
     }
 
     /**
@@ -2023,5 +2461,91 @@ public abstract class CredentialsProvider extends Descriptor<CredentialsProvider
             return collator.compare(o1.name.toLowerCase(locale), o2.name.toLowerCase(locale));
         }
     }
-}
 
+    /**
+     * The results of {@link #isEnabled()} and {@link #isApplicable(Class)} for a specific
+     * {@link CredentialsProviderManager#getConfigurationVersion()}.
+     */
+    private static final class ConfigurationMemo {
+        /**
+         * The configuration version the results are valid for.
+         */
+        private final long version;
+        /**
+         * The result of {@link #isEnabled()} or {@code null} if not yet known.
+         */
+        private volatile Boolean enabled;
+        /**
+         * The results of {@link #isApplicable(Class)} keyed by the requested type.
+         */
+        private final Map<Class<?>, Boolean> types = new ConcurrentHashMap<>();
+
+        ConfigurationMemo(long version) {
+            this.version = version;
+        }
+    }
+
+    /**
+     * The installed {@link CredentialsProvider}s and which of them are enabled by class of context, for a specific
+     * {@link CredentialsProviderManager#getConfigurationVersion()}.
+     */
+    private static final class EnabledProviders {
+        /**
+         * The current snapshot.
+         */
+        private static volatile EnabledProviders current;
+        /**
+         * The configuration version the snapshot is valid for.
+         */
+        private final long version;
+        /**
+         * All the providers in extension order.
+         */
+        private final List<CredentialsProvider> providers;
+        /**
+         * The providers that override {@link CredentialsProvider#isEnabled(Object)} and so may depend on more than
+         * the class of the context.
+         */
+        private final Set<CredentialsProvider> contextSensitive;
+        /**
+         * {@code true} if the installed {@link DescriptorVisibilityFilter}s only consider the class of the context.
+         */
+        private final boolean byContextClassSafe;
+        /**
+         * The providers that may be enabled keyed by class of context.
+         */
+        private final Map<Class<?>, List<CredentialsProvider>> byContextClass = new ConcurrentHashMap<>();
+
+        private EnabledProviders(long version) {
+            this.version = version;
+            this.providers = List.copyOf(all());
+            Set<CredentialsProvider> contextSensitive = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (CredentialsProvider p : providers) {
+                if (Util.isOverridden(CredentialsProvider.class, p.getClass(), "isEnabled", Object.class)) {
+                    contextSensitive.add(p);
+                }
+            }
+            this.contextSensitive = contextSensitive;
+            boolean byContextClassSafe = true;
+            for (DescriptorVisibilityFilter filter : DescriptorVisibilityFilter.all()) {
+                if (filter.getClass() != CredentialsProviderManager.class) {
+                    // we cannot know what other filters base their decisions on
+                    byContextClassSafe = false;
+                    break;
+                }
+            }
+            this.byContextClassSafe = byContextClassSafe;
+        }
+
+        @NonNull
+        static EnabledProviders current() {
+            long version = CredentialsProviderManager.getConfigurationVersion();
+            EnabledProviders current = EnabledProviders.current;
+            if (current == null || current.version != version) {
+                current = new EnabledProviders(version);
+                EnabledProviders.current = current;
+            }
+            return current;
+        }
+    }
+}
@@ -28,7 +28,10 @@ import edu.umd.cs.findbugs.annotations.NonNull;
 import edu.umd.cs.findbugs.annotations.Nullable;
 import hudson.Extension;
 import hudson.ExtensionList;
+import hudson.ExtensionListListener;
 import hudson.XmlFile;
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
 import hudson.model.Descriptor;
 import hudson.model.DescriptorVisibilityFilter;
 import hudson.model.Saveable;
@@ -43,6 +46,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import jenkins.model.GlobalConfiguration;
@@ -50,6 +54,8 @@ import jenkins.model.GlobalConfigurationCategory;
 import jenkins.model.Jenkins;
 import net.sf.json.JSONArray;
 import net.sf.json.JSONObject;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
 import org.kohsuke.stapler.StaplerRequest2;
 
 /**
@@ -85,6 +91,11 @@ public class CredentialsProviderManager extends DescriptorVisibilityFilter imple
      */
     private transient Map<CredentialsProviderTypeRestrictionDescriptor, List<CredentialsProviderTypeRestriction>>
             restrictionGroups;
+    /**
+     * Incremented whenever the configuration or extensions that decide which {@link CredentialsProvider}s are
+     * enabled and which {@link CredentialsDescriptor}s are applicable change.
+     */
+    private static final AtomicLong CONFIGURATION_VERSION = new AtomicLong();
 
     /**
      * Our constructor.
@@ -111,6 +122,50 @@ public class CredentialsProviderManager extends DescriptorVisibilityFilter imple
         return manager == null || manager.providerFilter == null || manager.providerFilter.filter(provider);
     }
 
+    /**
+     * Returns the current configuration version, any decision about which {@link CredentialsProvider}s are enabled
+     * or which {@link CredentialsDescriptor}s are applicable can be cached until this changes.
+     *
+     * @return the current configuration version.
+     * @since TODO
+     */
+    @Restricted(NoExternalUse.class)
+    public static long getConfigurationVersion() {
+        return CONFIGURATION_VERSION.get();
+    }
+
+    /**
+     * Records that the configuration or extensions that decide which {@link CredentialsProvider}s are enabled and
+     * which {@link CredentialsDescriptor}s are applicable have changed.
+     *
+     * @since TODO
+     */
+    @Restricted(NoExternalUse.class)
+    public static void configurationChanged() {
+        CONFIGURATION_VERSION.incrementAndGet();
+        CredentialsLookupCache.invalidate();
+    }
+
+    /**
+     * Ensure that changes in the installed extensions are treated as configuration changes.
+     */
+    @Initializer(after = InitMilestone.EXTENSIONS_AUGMENTED)
+    @Restricted(NoExternalUse.class)
+    public static void listenForExtensionChanges() {
+        ExtensionListListener listener = new ExtensionListListener() {
+            @Override
+            public void onChange() {
+                configurationChanged();
+            }
+        };
+        ExtensionList.lookup(CredentialsProvider.class).addListener(listener);
+        ExtensionList.lookup(CredentialsDescriptor.class).addListener(listener);
+        ExtensionList.lookup(CredentialsProviderTypeRestrictionDescriptor.class).addListener(listener);
+        ExtensionList.lookup(DescriptorVisibilityFilter.class).addListener(listener);
+        // discard anything decided while the extensions were still being loaded
+        configurationChanged();
+    }
+
     /**
      * Returns our {@link CredentialsProviderManager} singleton.
      *
@@ -197,6 +252,7 @@ public class CredentialsProviderManager extends DescriptorVisibilityFilter imple
     @Override
     public void save() throws IOException {
         checkPermission(Jenkins.ADMINISTER);
+        configurationChanged();
         getConfigFile().write(this);
     }
 
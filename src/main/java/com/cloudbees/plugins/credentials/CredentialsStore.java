@@ -24,6 +24,8 @@
 package com.cloudbees.plugins.credentials;
 
 import com.cloudbees.plugins.credentials.domains.Domain;
+import com.cloudbees.plugins.credentials.domains.DomainCredentials;
+import com.cloudbees.plugins.credentials.domains.DomainRequirement;
 import edu.umd.cs.findbugs.annotations.CheckForNull;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import edu.umd.cs.findbugs.annotations.Nullable;
@@ -44,11 +46,15 @@ import hudson.security.AccessControlled;
 import hudson.security.AccessDeniedException3;
 import hudson.security.Permission;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import hudson.tasks.UserAvatarResolver;
@@ -317,6 +323,51 @@ public abstract class CredentialsStore implements AccessControlled, Saveable {
     @NonNull
     public abstract List<Credentials> getCredentials(@NonNull Domain domain);
 
+    /**
+     * Returns the {@link com.cloudbees.plugins.credentials.common.IdCredentials} with the specified ID in the
+     * specified domain.
+     * <strong>NOTE:</strong> implementations that hold large numbers of credentials are recommended to override
+     * this method with a lookup that does not need to traverse every credential in the domain. The default
+     * implementation searches {@link #getCredentials(Domain)}.
+     *
+     * @param domain the domain.
+     * @param id     the ID.
+     * @return the credentials or {@code null} if there are no credentials with that ID in the domain.
+     * @since TODO
+     */
+    @CheckForNull
+    public Credentials getCredentialsById(@NonNull Domain domain, @NonNull String id) {
+        return CredentialsMatchers.firstOrNull(getCredentials(domain), CredentialsMatchers.withId(id));
+    }
+
+    /**
+     * Returns the credentials in this store that match each of the supplied lists of requirements, as
+     * {@link DomainCredentials#getCredentialsForEach(Map, Class, List, CredentialsMatcher)} would on the map of
+     * domains to credentials, so that many URIs can be resolved against the store in a single pass.
+     * <strong>NOTE:</strong> implementations that hold large numbers of credentials are recommended to override
+     * this method. The default implementation collects {@link #getCredentials(Domain)} for each of
+     * {@link #getDomains()}.
+     *
+     * @param type               the type of credentials.
+     * @param domainRequirements the lists of domain requirements.
+     * @param credentialsMatcher the credentials matcher.
+     * @param <C>                the type of credentials.
+     * @return the matching credentials of each list of domain requirements, in the same order.
+     * @since TODO
+     */
+    @NonNull
+    public <C extends Credentials> List<List<C>> getCredentialsForEach(
+            @NonNull Class<C> type,
+            @NonNull List<List<DomainRequirement>> domainRequirements,
+            @NonNull CredentialsMatcher credentialsMatcher) {
+        Map<Domain, List<Credentials>> domainCredentialsMap = new LinkedHashMap<>();
+        for (Domain domain : getDomains()) {
+            domainCredentialsMap.put(domain, getCredentials(domain));
+        }
+        return DomainCredentials.getCredentialsForEach(domainCredentialsMap, type, domainRequirements,
+                credentialsMatcher);
+    }
+
     /**
      * Adds a new {@link Domain} with seed credentials.
      *
@@ -401,6 +452,150 @@ public abstract class CredentialsStore implements AccessControlled, Saveable {
                                               @NonNull Credentials replacement)
             throws IOException;
 
+    /**
+     * Applies several changes to this store with a single save. The changes are made through the supplied
+     * {@link Batch}, whose methods behave like the methods of this store with the same name except that nothing is
+     * persisted until {@code changes} returns. <strong>NOTE:</strong> implementations are recommended to override
+     * this method. The default implementation calls the methods of this store within a {@link BulkChange} of this
+     * store, so it only saves once if those methods save through {@link #save()}, and changes made before
+     * {@code changes} throws are kept in memory.
+     *
+     * @param changes the changes to apply.
+     * @throws IOException if the changes could not be persisted.
+     * @since TODO
+     */
+    public void batch(@NonNull Consumer<Batch> changes) throws IOException {
+        try (BulkChange bc = new BulkChange(this)) {
+            changes.accept(new Batch() {
+                @Override
+                public boolean addDomain(@NonNull Domain domain, @NonNull List<Credentials> credentials) {
+                    return unchecked(() -> CredentialsStore.this.addDomain(domain, credentials));
+                }
+
+                @Override
+                public boolean removeDomain(@NonNull Domain domain) {
+                    return unchecked(() -> CredentialsStore.this.removeDomain(domain));
+                }
+
+                @Override
+                public boolean updateDomain(@NonNull Domain current, @NonNull Domain replacement) {
+                    return unchecked(() -> CredentialsStore.this.updateDomain(current, replacement));
+                }
+
+                @Override
+                public boolean addCredentials(@NonNull Domain domain, @NonNull Credentials credentials) {
+                    return unchecked(() -> CredentialsStore.this.addCredentials(domain, credentials));
+                }
+
+                @Override
+                public boolean removeCredentials(@NonNull Domain domain, @NonNull Credentials credentials) {
+                    return unchecked(() -> CredentialsStore.this.removeCredentials(domain, credentials));
+                }
+
+                @Override
+                public boolean updateCredentials(@NonNull Domain domain, @NonNull Credentials current,
+                                                 @NonNull Credentials replacement) {
+                    return unchecked(() -> CredentialsStore.this.updateCredentials(domain, current, replacement));
+                }
+            });
+            bc.commit();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Calls one of the methods of this store from a {@link Batch}.
+     *
+     * @param change the change.
+     * @return whether the store was modified.
+     */
+    private static boolean unchecked(@NonNull Change change) {
+        try {
+            return change.apply();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * One of the methods of a store that modify it.
+     */
+    @FunctionalInterface
+    private interface Change {
+        boolean apply() throws IOException;
+    }
+
+    /**
+     * The changes that can be made to a {@link CredentialsStore} by {@link #batch(Consumer)}. Each method returns
+     * {@code true} if the store was modified, as the method of the store with the same name would.
+     *
+     * @since TODO
+     */
+    public interface Batch {
+
+        /**
+         * Adds a new {@link Domain} with seed credentials.
+         *
+         * @param domain      the domain.
+         * @param credentials the initial credentials with which to populate the domain.
+         * @return {@code true} if the {@link CredentialsStore} was modified.
+         * @see CredentialsStore#addDomain(Domain, List)
+         */
+        boolean addDomain(@NonNull Domain domain, @NonNull List<Credentials> credentials);
+
+        /**
+         * Removes an existing {@link Domain} and all associated {@link Credentials}.
+         *
+         * @param domain the domain.
+         * @return {@code true} if the {@link CredentialsStore} was modified.
+         * @see CredentialsStore#removeDomain(Domain)
+         */
+        boolean removeDomain(@NonNull Domain domain);
+
+        /**
+         * Updates an existing {@link Domain} keeping the existing associated {@link Credentials}.
+         *
+         * @param current     the domain to update.
+         * @param replacement the new replacement domain.
+         * @return {@code true} if the {@link CredentialsStore} was modified.
+         * @see CredentialsStore#updateDomain(Domain, Domain)
+         */
+        boolean updateDomain(@NonNull Domain current, @NonNull Domain replacement);
+
+        /**
+         * Adds the specified {@link Credentials} within the specified {@link Domain}.
+         *
+         * @param domain      the domain.
+         * @param credentials the credentials
+         * @return {@code true} if the {@link CredentialsStore} was modified.
+         * @see CredentialsStore#addCredentials(Domain, Credentials)
+         */
+        boolean addCredentials(@NonNull Domain domain, @NonNull Credentials credentials);
+
+        /**
+         * Removes the specified {@link Credentials} from the specified {@link Domain}.
+         *
+         * @param domain      the domain.
+         * @param credentials the credentials
+         * @return {@code true} if the {@link CredentialsStore} was modified.
+         * @see CredentialsStore#removeCredentials(Domain, Credentials)
+         */
+        boolean removeCredentials(@NonNull Domain domain, @NonNull Credentials credentials);
+
+        /**
+         * Updates the specified {@link Credentials} from the specified {@link Domain} with the supplied replacement.
+         *
+         * @param domain      the domain.
+         * @param current     the credentials to update.
+         * @param replacement the new replacement credentials.
+         * @return {@code true} if the {@link CredentialsStore} was modified.
+         * @see CredentialsStore#updateCredentials(Domain, Credentials, Credentials)
+         */
+        boolean updateCredentials(@NonNull Domain domain, @NonNull Credentials current,
+                                  @NonNull Credentials replacement);
+    }
+
     /**
      * Determines if the specified {@link Descriptor} is applicable to this {@link CredentialsStore}.
      * <p>
@@ -616,6 +811,7 @@ public abstract class CredentialsStore implements AccessControlled, Saveable {
      */
     @Override
     public void save() throws IOException {
+        CredentialsLookupCache.invalidate();
         if (BulkChange.contains(this)) {
             return;
         }
@@ -0,0 +1,67 @@
+package com.cloudbees.plugins.credentials;
+
+import com.cloudbees.plugins.credentials.domains.Domain;
+import com.cloudbees.plugins.credentials.domains.DomainCredentialsIndex;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holds the {@link DomainCredentialsIndex} of a store, rebuilt on demand without locking. Each index is tagged with
+ * the generation that was current before it was built, and {@link #invalidate()} bumps the generation once a change
+ * is complete, so an index built while a change was in progress is never used after that change.
+ *
+ * @since TODO
+ */
+final class DomainCredentialsIndexHolder {
+
+    /**
+     * Bumped on every change to the credentials.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * The last index built, or {@code null}.
+     */
+    private volatile Tagged tagged;
+
+    /**
+     * Discards the index, to be called after the credentials have been changed.
+     */
+    void invalidate() {
+        generation.incrementAndGet();
+    }
+
+    /**
+     * Returns the index of the credentials, rebuilding it if they have been changed.
+     *
+     * @param domainCredentialsMap the credentials.
+     * @return the index.
+     */
+    @NonNull
+    DomainCredentialsIndex get(@NonNull Map<Domain, List<Credentials>> domainCredentialsMap) {
+        Tagged tagged = this.tagged;
+        long generation = this.generation.get();
+        if (tagged != null && tagged.generation == generation && tagged.index.isCurrent(domainCredentialsMap)) {
+            return tagged.index;
+        }
+        DomainCredentialsIndex index = DomainCredentialsIndex.of(domainCredentialsMap);
+        // racing threads may publish in any order, an older generation is simply rebuilt by the next call
+        this.tagged = new Tagged(generation, index);
+        return index;
+    }
+
+    /**
+     * An index and the generation it was built for.
+     */
+    private static final class Tagged {
+        private final long generation;
+        private final DomainCredentialsIndex index;
+
+        Tagged(long generation, DomainCredentialsIndex index) {
+            this.generation = generation;
+            this.index = index;
+        }
+    }
+}
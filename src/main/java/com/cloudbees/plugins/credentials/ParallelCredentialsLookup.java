@@ -0,0 +1,176 @@
+package com.cloudbees.plugins.credentials;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.model.Jenkins;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import org.springframework.security.core.Authentication;
+
+/**
+ * Queries several {@link CredentialsProvider}s concurrently on behalf of
+ * {@link CredentialsProvider#lookupCredentialsInItemGroup(Class, hudson.model.ItemGroup, Authentication, List)} and
+ * {@link CredentialsProvider#lookupCredentialsInItem(Class, hudson.model.Item, Authentication, List)}.
+ * <p>
+ * The first provider is queried on the calling thread while the others are queried on a small shared pool, with the
+ * {@link Authentication} of the caller. When no thread of the pool is idle, the provider is queried on the calling
+ * thread instead, so that work never queues up and nested lookups cannot starve the pool. The results are returned in
+ * provider order so that the first provider to supply an ID still wins. A provider that has not answered within the
+ * timeout is queried again on the calling thread, so that the result is the same as a sequential lookup.
+ * <p>
+ * Disabled unless {@code com.cloudbees.plugins.credentials.ParallelCredentialsLookup.enabled} is {@code true}.
+ *
+ * @since TODO
+ */
+@Restricted(NoExternalUse.class)
+public final class ParallelCredentialsLookup {
+
+    /**
+     * Our logger.
+     */
+    private static final Logger LOGGER = Logger.getLogger(ParallelCredentialsLookup.class.getName());
+
+    /**
+     * Whether providers should be queried in parallel.
+     */
+    @Restricted(NoExternalUse.class)
+    /* package-protected */ static /* not final */ boolean ENABLED =
+            Boolean.getBoolean(ParallelCredentialsLookup.class.getName() + ".enabled");
+
+    /**
+     * How long to wait for the providers in milliseconds, measured from the start of the lookup.
+     */
+    @Restricted(NoExternalUse.class)
+    /* package-protected */ static /* not final */ long TIMEOUT_MILLIS =
+            Long.getLong(ParallelCredentialsLookup.class.getName() + ".timeoutMillis", TimeUnit.SECONDS.toMillis(10));
+
+    /**
+     * The maximum number of threads used to query providers.
+     */
+    private static final int THREADS = Integer.getInteger(ParallelCredentialsLookup.class.getName() + ".threads",
+            Math.max(2, Runtime.getRuntime().availableProcessors()));
+
+    /**
+     * Utility class.
+     */
+    private ParallelCredentialsLookup() {
+        throw new IllegalAccessError("Utility class");
+    }
+
+    /**
+     * Returns {@code true} if providers should be queried in parallel.
+     *
+     * @return {@code true} if providers should be queried in parallel.
+     */
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Queries the providers, returning the results in the same order as the providers. Providers that fail with a
+     * checked exception contribute an empty list, providers that time out are queried on the calling thread.
+     *
+     * @param providers the providers.
+     * @param query     the query to apply to each provider.
+     * @param <C>       the credentials type.
+     * @return the results of each provider.
+     */
+    @NonNull
+    static <C extends Credentials> List<List<C>> query(@NonNull List<CredentialsProvider> providers,
+                                                      @NonNull Function<CredentialsProvider, List<C>> query) {
+        final Authentication authentication = Jenkins.getAuthentication2();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MILLIS);
+        List<Future<List<C>>> futures = new ArrayList<>(providers.size());
+        for (CredentialsProvider provider : providers.subList(1, providers.size())) {
+            futures.add(ExecutorHolder.EXECUTOR.submit(() -> {
+                try (ACLContext ctx = ACL.as2(authentication)) {
+                    return query.apply(provider);
+                }
+            }));
+        }
+        try {
+            List<List<C>> results = new ArrayList<>(providers.size());
+            results.add(queryQuietly(providers.get(0), query));
+            for (int i = 0; i < futures.size(); i++) {
+                CredentialsProvider provider = providers.get(i + 1);
+                Future<List<C>> future = futures.get(i);
+                try {
+                    results.add(future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+                } catch (TimeoutException e) {
+                    future.cancel(true);
+                    LOGGER.log(Level.WARNING, "Querying {0} on the calling thread as it did not respond within {1}ms",
+                            new Object[]{provider, TIMEOUT_MILLIS});
+                    results.add(queryQuietly(provider, query));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while looking up credentials", e);
+                } catch (ExecutionException e) {
+                    handleFailure(provider, e.getCause());
+                    results.add(Collections.emptyList());
+                }
+            }
+            return results;
+        } finally {
+            // no-op for the futures that have completed
+            futures.forEach(f -> f.cancel(true));
+        }
+    }
+
+    @NonNull
+    private static <C extends Credentials> List<C> queryQuietly(@NonNull CredentialsProvider provider,
+                                                               @NonNull Function<CredentialsProvider, List<C>> query) {
+        try {
+            return query.apply(provider);
+        } catch (NoClassDefFoundError e) {
+            handleFailure(provider, e);
+            return Collections.emptyList();
+        }
+    }
+
+    private static void handleFailure(CredentialsProvider provider, Throwable cause) {
+        if (cause instanceof NoClassDefFoundError) {
+            LOGGER.log(Level.FINE, "Could not retrieve provider credentials from " + provider
+                    + " likely due to missing optional dependency", cause);
+        } else if (cause instanceof RuntimeException) {
+            // the sequential lookup would have propagated this
+            throw (RuntimeException) cause;
+        } else if (cause instanceof Error) {
+            throw (Error) cause;
+        } else {
+            LOGGER.log(Level.WARNING, "Could not retrieve provider credentials from " + provider, cause);
+        }
+    }
+
+    /**
+     * Lazy initialization of the pool, so that nothing is started unless parallel lookups are used. Tasks are handed
+     * over to an idle thread or run by the submitting thread, never queued.
+     */
+    private static final class ExecutorHolder {
+        private static final ExecutorService EXECUTOR;
+
+        static {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(THREADS, THREADS, 60, TimeUnit.SECONDS,
+                    new SynchronousQueue<>(),
+                    new NamingThreadFactory(new DaemonThreadFactory(), "ParallelCredentialsLookup"),
+                    new ThreadPoolExecutor.CallerRunsPolicy());
+            executor.allowCoreThreadTimeOut(true);
+            EXECUTOR = executor;
+        }
+    }
+}
@@ -0,0 +1,512 @@
+package com.cloudbees.plugins.credentials;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.RandomAccess;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * A thread-safe list, like {@link java.util.concurrent.CopyOnWriteArrayList}, where each modification publishes a new
+ * immutable snapshot that readers and iterators use without locking. The snapshot is a 32-way trie with a separate
+ * tail, so that {@link #add(Object)} and {@link #set(int, Object)} only copy the path to the changed element rather
+ * than the whole list. Inserting or removing elements anywhere but at the end still copies the whole list.
+ *
+ * @param <E> the type of elements.
+ * @since TODO
+ */
+final class PersistentList<E> extends AbstractList<E> implements RandomAccess {
+
+    /**
+     * The current snapshot.
+     */
+    @NonNull
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    /**
+     * Constructor.
+     */
+    PersistentList() {
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param elements the initial elements.
+     */
+    PersistentList(@NonNull Collection<? extends E> elements) {
+        snapshot = Snapshot.of(elements);
+    }
+
+    /**
+     * Returns an immutable point-in-time view of this list.
+     *
+     * @return the elements at the time of the call.
+     */
+    @NonNull
+    List<E> snapshot() {
+        return new View<>(snapshot);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        Snapshot snapshot = this.snapshot;
+        checkIndex(index, snapshot.size);
+        return (E) snapshot.get(index);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size() {
+        return snapshot.size;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public synchronized E set(int index, E element) {
+        Snapshot snapshot = this.snapshot;
+        checkIndex(index, snapshot.size);
+        E previous = (E) snapshot.get(index);
+        this.snapshot = snapshot.set(index, element);
+        return previous;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized boolean add(E element) {
+        snapshot = snapshot.append(element);
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized boolean addAll(Collection<? extends E> elements) {
+        Snapshot snapshot = this.snapshot;
+        for (E element : elements) {
+            snapshot = snapshot.append(element);
+        }
+        boolean modified = snapshot != this.snapshot;
+        this.snapshot = snapshot;
+        return modified;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void add(int index, E element) {
+        if (index == size()) {
+            // cheap when appending, checked again under the lock below otherwise
+            synchronized (this) {
+                if (index == snapshot.size) {
+                    snapshot = snapshot.append(element);
+                    return;
+                }
+            }
+        }
+        rebuild(list -> list.add(index, element));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public E remove(int index) {
+        List<E> removed = new ArrayList<>(1);
+        rebuild(list -> removed.add(list.remove(index)));
+        return removed.get(0);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean remove(Object o) {
+        return rebuildIf(list -> list.remove(o));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean removeAll(@NonNull Collection<?> c) {
+        return rebuildIf(list -> list.removeAll(c));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean retainAll(@NonNull Collection<?> c) {
+        return rebuildIf(list -> list.retainAll(c));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean removeIf(@NonNull Predicate<? super E> filter) {
+        return rebuildIf(list -> list.removeIf(filter));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void replaceAll(@NonNull UnaryOperator<E> operator) {
+        rebuild(list -> list.replaceAll(operator));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void sort(Comparator<? super E> c) {
+        rebuild(list -> list.sort(c));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void clear() {
+        snapshot = Snapshot.EMPTY;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        rebuild(list -> list.subList(fromIndex, toIndex).clear());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public Iterator<E> iterator() {
+        return snapshot().iterator();
+    }
+
+    /**
+     * {@inheritDoc} The iterator does not see later changes, but {@link ListIterator#set(Object)} writes through to
+     * this list.
+     */
+    @NonNull
+    @Override
+    public ListIterator<E> listIterator(int index) {
+        return new WriteThroughIterator(snapshot().listIterator(index));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public Object[] toArray() {
+        return snapshot().toArray();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public <T> T[] toArray(@NonNull T[] a) {
+        return snapshot().toArray(a);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void forEach(Consumer<? super E> action) {
+        snapshot().forEach(action);
+    }
+
+    /**
+     * Applies a modification to a copy of the elements and publishes the result.
+     *
+     * @param modification the modification.
+     */
+    private synchronized void rebuild(@NonNull Consumer<List<E>> modification) {
+        List<E> list = new ArrayList<>(snapshot());
+        modification.accept(list);
+        snapshot = Snapshot.of(list);
+    }
+
+    /**
+     * Applies a modification to a copy of the elements and publishes the result if anything changed.
+     *
+     * @param modification the modification.
+     * @return {@code true} if anything changed.
+     */
+    private synchronized boolean rebuildIf(@NonNull Predicate<List<E>> modification) {
+        List<E> list = new ArrayList<>(snapshot());
+        if (!modification.test(list)) {
+            return false;
+        }
+        snapshot = Snapshot.of(list);
+        return true;
+    }
+
+    private static void checkIndex(int index, int size) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    /**
+     * A {@link ListIterator} over a snapshot that sets elements in the list by index.
+     */
+    private final class WriteThroughIterator implements ListIterator<E> {
+        /**
+         * The iterator over the snapshot.
+         */
+        private final ListIterator<E> delegate;
+        /**
+         * The index of the element last returned, or {@code -1}.
+         */
+        private int last = -1;
+
+        WriteThroughIterator(ListIterator<E> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return delegate.hasNext();
+        }
+
+        @Override
+        public E next() {
+            E element = delegate.next();
+            last = delegate.previousIndex();
+            return element;
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return delegate.hasPrevious();
+        }
+
+        @Override
+        public E previous() {
+            E element = delegate.previous();
+            last = delegate.nextIndex();
+            return element;
+        }
+
+        @Override
+        public int nextIndex() {
+            return delegate.nextIndex();
+        }
+
+        @Override
+        public int previousIndex() {
+            return delegate.previousIndex();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void set(E element) {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            PersistentList.this.set(last, element);
+        }
+
+        @Override
+        public void add(E element) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * An immutable point-in-time view of a {@link PersistentList}.
+     */
+    private static final class View<E> extends AbstractList<E> implements RandomAccess {
+        /**
+         * The snapshot.
+         */
+        private final Snapshot snapshot;
+
+        View(Snapshot snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public E get(int index) {
+            checkIndex(index, snapshot.size);
+            return (E) snapshot.get(index);
+        }
+
+        @Override
+        public int size() {
+            return snapshot.size;
+        }
+    }
+
+    /**
+     * An immutable list of elements where the complete leaves of 32 elements are held in a trie and the last
+     * incomplete leaf is held separately, as described by Bagwell's and Hickey's persistent vectors.
+     */
+    private static final class Snapshot {
+        /**
+         * The number of bits of the index used at each level of the trie.
+         */
+        private static final int BITS = 5;
+        /**
+         * The number of children of each node of the trie.
+         */
+        private static final int WIDTH = 1 << BITS;
+        /**
+         * The mask to get the index of a child at a level of the trie.
+         */
+        private static final int MASK = WIDTH - 1;
+        /**
+         * The empty snapshot.
+         */
+        static final Snapshot EMPTY = new Snapshot(0, BITS, new Object[WIDTH], new Object[0]);
+
+        /**
+         * The number of elements.
+         */
+        final int size;
+        /**
+         * The number of index bits below the root.
+         */
+        private final int shift;
+        /**
+         * The root of the trie.
+         */
+        private final Object[] root;
+        /**
+         * The last elements, not yet in the trie.
+         */
+        private final Object[] tail;
+
+        private Snapshot(int size, int shift, Object[] root, Object[] tail) {
+            this.size = size;
+            this.shift = shift;
+            this.root = root;
+            this.tail = tail;
+        }
+
+        static Snapshot of(Collection<?> elements) {
+            Snapshot result = EMPTY;
+            for (Object element : elements) {
+                result = result.append(element);
+            }
+            return result;
+        }
+
+        private int tailOffset() {
+            return size < WIDTH ? 0 : ((size - 1) >>> BITS) << BITS;
+        }
+
+        private Object[] leafFor(int index) {
+            if (index >= tailOffset()) {
+                return tail;
+            }
+            Object[] node = root;
+            for (int level = shift; level > 0; level -= BITS) {
+                node = (Object[]) node[(index >>> level) & MASK];
+            }
+            return node;
+        }
+
+        Object get(int index) {
+            return leafFor(index)[index & MASK];
+        }
+
+        Snapshot set(int index, Object element) {
+            if (index >= tailOffset()) {
+                Object[] tail = this.tail.clone();
+                tail[index & MASK] = element;
+                return new Snapshot(size, shift, root, tail);
+            }
+            return new Snapshot(size, shift, set(shift, root, index, element), tail);
+        }
+
+        private static Object[] set(int level, Object[] node, int index, Object element) {
+            Object[] copy = node.clone();
+            if (level == 0) {
+                copy[index & MASK] = element;
+            } else {
+                int child = (index >>> level) & MASK;
+                copy[child] = set(level - BITS, (Object[]) node[child], index, element);
+            }
+            return copy;
+        }
+
+        Snapshot append(Object element) {
+            if (size - tailOffset() < WIDTH) {
+                Object[] tail = Arrays.copyOf(this.tail, this.tail.length + 1);
+                tail[this.tail.length] = element;
+                return new Snapshot(size + 1, shift, root, tail);
+            }
+            // the tail is full, move it into the trie
+            Object[] root;
+            int shift = this.shift;
+            if ((size >>> BITS) > (1 << shift)) {
+                root = new Object[WIDTH];
+                root[0] = this.root;
+                root[1] = newPath(shift, tail);
+                shift += BITS;
+            } else {
+                root = pushTail(shift, this.root, tail);
+            }
+            return new Snapshot(size + 1, shift, root, new Object[]{element});
+        }
+
+        private Object[] pushTail(int level, Object[] parent, Object[] leaf) {
+            int child = ((size - 1) >>> level) & MASK;
+            Object[] copy = parent.clone();
+            if (level == BITS) {
+                copy[child] = leaf;
+            } else {
+                Object[] node = (Object[]) parent[child];
+                copy[child] = node != null ? pushTail(level - BITS, node, leaf) : newPath(level - BITS, leaf);
+            }
+            return copy;
+        }
+
+        private static Object[] newPath(int level, Object[] leaf) {
+            if (level == 0) {
+                return leaf;
+            }
+            Object[] node = new Object[WIDTH];
+            node[0] = newPath(level - BITS, leaf);
+            return node;
+        }
+    }
+}
@@ -67,6 +67,10 @@ public class SecretBytes implements Serializable {
      * The salt size.
      */
     private static final int SALT_SIZE = 8;
+    /**
+     * The block size of the cipher.
+     */
+    private static final int BLOCK_SIZE = 16;
     /**
      * Standardize serialization.
      */
@@ -220,6 +224,15 @@ public class SecretBytes implements Serializable {
             if (len < 0) {
                 return null;
             }
+            if (len >= 2 * BLOCK_SIZE && len % BLOCK_SIZE == 0) {
+                // with CBC the padding only depends on the last block, so there is no need to decrypt large values
+                // such as keystores in full just to validate them, getPlainData() will decrypt them when needed
+                int last = salt.length + 1 + len - BLOCK_SIZE;
+                byte[] iv = Arrays.copyOfRange(data, last - BLOCK_SIZE, last);
+                Cipher cipher = KEY.decrypt(salt, iv);
+                cipher.doFinal(data, last, BLOCK_SIZE);
+                return new SecretBytes(true, data);
+            }
             byte[] encryptedBytes = new byte[len];
             System.arraycopy(data, salt.length + 1, encryptedBytes, 0, len);
             Cipher cipher = KEY.decrypt(salt);
@@ -0,0 +1,310 @@
+package com.cloudbees.plugins.credentials;
+
+import com.cloudbees.plugins.credentials.domains.Domain;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Util;
+import hudson.XmlFile;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import jenkins.model.Jenkins;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import org.springframework.security.core.Authentication;
+
+/**
+ * Stores the credentials of the {@link SystemCredentialsProvider} as one file per {@link Domain} in a
+ * {@code credentials.d} directory, with an {@code index.xml} manifest listing the files in order. Only the files of
+ * the domains that changed since they were last read or written are rewritten, and the manifest is only rewritten
+ * when domains are added, removed or renamed. The files are read in parallel, as each domain is decoded independently.
+ *
+ * @since TODO
+ */
+final class ShardedCredentialsStorage {
+
+    /**
+     * The name of the manifest file.
+     */
+    private static final String MANIFEST = "index.xml";
+
+    /**
+     * The maximum number of threads used to read the files, {@code 1} to read them on the calling thread.
+     */
+    @Restricted(NoExternalUse.class)
+    /* package-protected */ static /* not final */ int LOAD_THREADS = Integer.getInteger(
+            ShardedCredentialsStorage.class.getName() + ".loadThreads",
+            Math.min(8, Runtime.getRuntime().availableProcessors()));
+
+    /**
+     * The directory holding the files.
+     */
+    @NonNull
+    private final File directory;
+
+    /**
+     * The domain and credentials instances last read from or written to each file, by file name.
+     */
+    @NonNull
+    private final Map<String, Object[]> written = new HashMap<>();
+
+    /**
+     * The file names last read from or written to the manifest.
+     */
+    @CheckForNull
+    private List<String> manifest;
+
+    /**
+     * Constructor.
+     *
+     * @param directory the directory holding the files.
+     */
+    ShardedCredentialsStorage(@NonNull File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Returns the storage of the {@link SystemCredentialsProvider}.
+     *
+     * @return the storage.
+     */
+    @NonNull
+    static ShardedCredentialsStorage forSystem() {
+        return new ShardedCredentialsStorage(new File(Jenkins.get().getRootDir(), "credentials.d"));
+    }
+
+    /**
+     * Returns the manifest file.
+     *
+     * @return the manifest file.
+     */
+    @NonNull
+    XmlFile getManifestFile() {
+        return file(MANIFEST);
+    }
+
+    /**
+     * Checks whether credentials have been stored.
+     *
+     * @return {@code true} if there is a manifest.
+     */
+    boolean exists() {
+        return getManifestFile().exists();
+    }
+
+    /**
+     * Reads all the stored credentials.
+     *
+     * @return the credentials by domain, in the order of the manifest.
+     * @throws IOException if the files could not be read.
+     */
+    @NonNull
+    synchronized Map<Domain, List<Credentials>> load() throws IOException {
+        Manifest manifest = (Manifest) getManifestFile().read();
+        List<String> shards = manifest.shards == null ? new ArrayList<>() : manifest.shards;
+        Map<Domain, List<Credentials>> result = new LinkedHashMap<>();
+        List<Shard> read = read(shards);
+        written.clear();
+        for (int i = 0; i < shards.size(); i++) {
+            String name = shards.get(i);
+            Shard shard = read.get(i);
+            Domain domain = shard.domain == null ? Domain.global() : shard.domain;
+            List<Credentials> credentials = shard.credentials == null ? new ArrayList<>() : shard.credentials;
+            result.put(domain, credentials);
+            written.put(name, snapshot(domain, credentials));
+        }
+        this.manifest = shards;
+        return result;
+    }
+
+    /**
+     * Reads the files of the domains, using up to {@link #LOAD_THREADS} threads that act as the calling thread.
+     *
+     * @param names the file names.
+     * @return the contents of the files, in the same order as the names.
+     * @throws IOException if any of the files could not be read.
+     */
+    @NonNull
+    private List<Shard> read(@NonNull List<String> names) throws IOException {
+        List<Shard> result = new ArrayList<>(names.size());
+        int threads = Math.min(LOAD_THREADS, names.size());
+        if (threads <= 1) {
+            for (String name : names) {
+                result.add((Shard) file(name).read());
+            }
+            return result;
+        }
+        // credentials may check permissions while they are read, as they would on the calling thread
+        Authentication authentication = Jenkins.getAuthentication2();
+        // only needed while starting up, so not worth keeping around
+        ExecutorService executor = Executors.newFixedThreadPool(threads,
+                new NamingThreadFactory(new DaemonThreadFactory(), "ShardedCredentialsStorage.load"));
+        try {
+            List<Future<Shard>> futures = new ArrayList<>(names.size());
+            for (String name : names) {
+                futures.add(executor.submit(() -> {
+                    try (ACLContext ignored = ACL.as2(authentication)) {
+                        return (Shard) file(name).read();
+                    }
+                }));
+            }
+            for (Future<Shard> future : futures) {
+                result.add(future.get());
+            }
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            InterruptedIOException x = new InterruptedIOException("Interrupted while reading " + directory);
+            x.initCause(e);
+            throw x;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Writes the files of the domains that changed since they were last read or written.
+     *
+     * @param domainCredentialsMap the credentials by domain.
+     * @throws IOException if the files could not be written.
+     */
+    synchronized void save(@NonNull Map<Domain, List<Credentials>> domainCredentialsMap) throws IOException {
+        List<String> shards = new ArrayList<>();
+        Map<String, Object[]> current = new HashMap<>();
+        for (Map.Entry<Domain, List<Credentials>> entry : domainCredentialsMap.entrySet()) {
+            String name = fileName(entry.getKey());
+            List<Credentials> credentials = new ArrayList<>(entry.getValue());
+            Object[] snapshot = snapshot(entry.getKey(), credentials);
+            if (!same(snapshot, written.get(name))) {
+                file(name).write(new Shard(entry.getKey(), credentials));
+                written.put(name, snapshot);
+            }
+            shards.add(name);
+            current.put(name, snapshot);
+        }
+        if (!shards.equals(manifest)) {
+            getManifestFile().write(new Manifest(shards));
+            manifest = shards;
+        }
+        // only once the manifest no longer lists them
+        for (String name : new ArrayList<>(written.keySet())) {
+            if (!current.containsKey(name)) {
+                Files.deleteIfExists(file(name).getFile().toPath());
+                written.remove(name);
+            }
+        }
+    }
+
+    /**
+     * Deletes all the stored credentials. The manifest is deleted first, so that the remaining files are never read
+     * again even if deleting them fails.
+     *
+     * @throws IOException if the files could not be deleted.
+     */
+    synchronized void delete() throws IOException {
+        Files.deleteIfExists(getManifestFile().getFile().toPath());
+        Util.deleteRecursive(directory);
+        written.clear();
+        manifest = null;
+    }
+
+    /**
+     * Returns the name of the file of a domain.
+     *
+     * @param domain the domain.
+     * @return the file name.
+     */
+    @NonNull
+    private static String fileName(@NonNull Domain domain) {
+        // domain names can contain anything, so use a digest
+        return domain.isGlobal() ? "global.xml" : "domain-" + Util.getDigestOf(domain.getName()) + ".xml";
+    }
+
+    @NonNull
+    private XmlFile file(@NonNull String name) {
+        return new XmlFile(Jenkins.XSTREAM2, new File(directory, name));
+    }
+
+    /**
+     * Captures the instances making up a domain's file, as credentials are replaced rather than modified in place.
+     */
+    @NonNull
+    private static Object[] snapshot(@NonNull Domain domain, @NonNull List<Credentials> credentials) {
+        Object[] result = new Object[credentials.size() + 1];
+        result[0] = domain;
+        for (int i = 0; i < credentials.size(); i++) {
+            result[i + 1] = credentials.get(i);
+        }
+        return result;
+    }
+
+    private static boolean same(@NonNull Object[] a, @CheckForNull Object[] b) {
+        if (b == null || a.length != b.length) {
+            return false;
+        }
+        for (int i = 0; i < a.length; i++) {
+            // credentials with the same ID are equal, so compare identities
+            if (a[i] != b[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The manifest file.
+     */
+    private static final class Manifest {
+        /**
+         * The file names of the domains, in order.
+         */
+        private List<String> shards;
+
+        Manifest(List<String> shards) {
+            this.shards = shards;
+        }
+    }
+
+    /**
+     * The file of a domain.
+     */
+    private static final class Shard {
+        /**
+         * The domain.
+         */
+        private Domain domain;
+        /**
+         * The credentials of the domain.
+         */
+        private List<Credentials> credentials;
+
+        Shard(Domain domain, List<Credentials> credentials) {
+            this.domain = domain;
+            this.credentials = credentials;
+        }
+    }
+}
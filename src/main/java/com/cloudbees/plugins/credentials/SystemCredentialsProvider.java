@@ -26,6 +26,7 @@ package com.cloudbees.plugins.credentials;
 import com.cloudbees.plugins.credentials.common.IdCredentials;
 import com.cloudbees.plugins.credentials.domains.Domain;
 import com.cloudbees.plugins.credentials.domains.DomainCredentials;
+import com.cloudbees.plugins.credentials.domains.DomainCredentialsIndex;
 import com.cloudbees.plugins.credentials.domains.DomainRequirement;
 import edu.umd.cs.findbugs.annotations.CheckForNull;
 import edu.umd.cs.findbugs.annotations.NonNull;
@@ -36,6 +37,7 @@ import hudson.ExtensionList;
 import hudson.XmlFile;
 import hudson.init.InitMilestone;
 import hudson.init.Initializer;
+import hudson.init.Terminator;
 import hudson.model.AbstractDescribableImpl;
 import hudson.model.Descriptor;
 import hudson.model.Item;
@@ -49,17 +51,25 @@ import hudson.security.Permission;
 import hudson.util.CopyOnWriteMap;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Stream;
 import jenkins.model.Jenkins;
+import jenkins.util.Timer;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
 import org.kohsuke.stapler.export.Exported;
 import org.kohsuke.stapler.export.ExportedBean;
 import org.springframework.security.core.Authentication;
@@ -82,6 +92,42 @@ public class SystemCredentialsProvider extends AbstractDescribableImpl<SystemCre
      */
     private static final Logger LOGGER = Logger.getLogger(SystemCredentialsProvider.class.getName());
 
+    /**
+     * How long in milliseconds loading the credentials on startup may take before it is logged at {@link Level#INFO}.
+     */
+    private static final long SLOW_LOAD_MILLIS = 1000;
+
+    /**
+     * How long in milliseconds a change may wait before it is written to disk, so that bursts of changes are written
+     * once. {@code 0} or less writes every change immediately.
+     */
+    @Restricted(NoExternalUse.class)
+    /* package-protected */ static /* not final */ long WRITE_BEHIND_MILLIS =
+            Long.getLong(SystemCredentialsProvider.class.getName() + ".writeBehindMillis", 0);
+
+    /**
+     * Whether to store the credentials as one file per domain in {@code credentials.d} rather than in
+     * {@code credentials.xml}. Switching either way migrates the existing credentials on startup.
+     */
+    @Restricted(NoExternalUse.class)
+    /* package-protected */ static /* not final */ boolean SHARDED =
+            Boolean.getBoolean(SystemCredentialsProvider.class.getName() + ".sharded");
+
+    /**
+     * Whether to append the changes made through the {@link CredentialsStore} to {@code credentials.journal} rather
+     * than rewriting {@code credentials.xml}. Ignored when {@link #SHARDED}.
+     */
+    @Restricted(NoExternalUse.class)
+    /* package-protected */ static /* not final */ boolean JOURNAL =
+            Boolean.getBoolean(SystemCredentialsProvider.class.getName() + ".journal");
+
+    /**
+     * The size in bytes above which the journal is compacted into {@code credentials.xml} in the background.
+     */
+    @Restricted(NoExternalUse.class)
+    /* package-protected */ static /* not final */ long JOURNAL_COMPACTION_BYTES =
+            Long.getLong(SystemCredentialsProvider.class.getName() + ".journalCompactionBytes", 1024 * 1024);
+
     /**
      * Old store of credentials
      *
@@ -91,40 +137,199 @@ public class SystemCredentialsProvider extends AbstractDescribableImpl<SystemCre
     private transient List<Credentials> credentials = new CopyOnWriteArrayList<>();
 
     /**
-     * Our credentials.
+     * Our credentials. In memory the lists are {@link PersistentList}s, they are written as
+     * {@link CopyOnWriteArrayList}s by {@link #writeReplace()} so that the file format does not change.
      *
      * @since 1.5
      */
-    private Map<Domain, List<Credentials>> domainCredentialsMap = new CopyOnWriteMap.Hash<>();
+    private volatile Map<Domain, List<Credentials>> domainCredentialsMap = new CopyOnWriteMap.Hash<>();
+
+    /**
+     * The index of {@link #domainCredentialsMap}.
+     */
+    private final transient DomainCredentialsIndexHolder index = new DomainCredentialsIndexHolder();
 
     /**
      * Our backing store.
      */
-    private transient StoreImpl store = new StoreImpl();
+    private transient volatile StoreImpl store = new StoreImpl();
+
+    /**
+     * Whether there are changes that have not been written to disk yet, guarded by {@code this}.
+     */
+    private transient boolean dirty;
+
+    /**
+     * Whether a write of the pending changes is scheduled, guarded by {@code this}.
+     */
+    private transient boolean writeScheduled;
+
+    /**
+     * The per domain storage or {@code null} when the credentials are stored in {@link #getConfigFile()}.
+     */
+    @CheckForNull
+    private transient ShardedCredentialsStorage shards;
+
+    /**
+     * The journal of the changes made since {@link #getConfigFile()} was last written.
+     */
+    private transient CredentialsJournal journal;
+
+    /**
+     * Whether a compaction of the {@link #journal} is scheduled. Guarded by {@code this}.
+     */
+    private transient boolean compactionScheduled;
 
     /**
      * Constructor.
      */
     @SuppressWarnings("deprecation")
     public SystemCredentialsProvider() {
+        long start = System.nanoTime();
+        ShardedCredentialsStorage storage = ShardedCredentialsStorage.forSystem();
+        XmlFile xml = getConfigFile();
+        journal = CredentialsJournal.forSystem();
+        boolean replayed = false;
         try {
-            XmlFile xml = getConfigFile();
-            if (xml.exists()) {
+            // the layout in use wins when both exist, the other one is only read until migrateStorage() has run
+            if (storage.exists() && (SHARDED || !xml.exists())) {
+                domainCredentialsMap = storage.load();
+            } else if (xml.exists()) {
                 xml.unmarshal(this);
+                domainCredentialsMap = toPersistentMap(
+                        DomainCredentials.migrateListToMap(domainCredentialsMap, credentials));
+                credentials = null;
+                // replayed even when journaling is disabled, so that no change is lost
+                replayed = journal.replay(xml, domainCredentialsMap);
             }
         } catch (IOException e) {
             LOGGER.log(Level.SEVERE, "Failed to read the existing credentials", e);
         }
-        domainCredentialsMap = DomainCredentials.migrateListToMap(domainCredentialsMap, credentials);
+        domainCredentialsMap = toPersistentMap(DomainCredentials.migrateListToMap(domainCredentialsMap, credentials));
         credentials = null;
+        if (SHARDED) {
+            shards = storage;
+        }
+        long loaded = System.nanoTime();
+        if (replayed && !SHARDED) {
+            // nothing may be appended after an interrupted entry
+            try {
+                xml.write(this);
+                journal.delete();
+            } catch (IOException e) {
+                LOGGER.log(Level.SEVERE, "Failed to compact " + journal.getFile(), e);
+            }
+        }
+        logLoad(start, loaded, System.nanoTime());
+    }
+
+    /**
+     * Logs how long loading the credentials took, so that slow startups can be diagnosed.
+     *
+     * @param start  when loading started, in {@link System#nanoTime()}.
+     * @param loaded when the credentials were read.
+     * @param end    when any compaction completed.
+     */
+    private void logLoad(long start, long loaded, long end) {
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(end - start);
+        Level level = elapsed >= SLOW_LOAD_MILLIS ? Level.INFO : Level.FINE;
+        if (LOGGER.isLoggable(level)) {
+            int count = 0;
+            for (List<Credentials> list : domainCredentialsMap.values()) {
+                count += list.size();
+            }
+            LOGGER.log(level, "Loaded {0} credentials in {1} domains in {2}ms ({3}ms reading, {4}ms writing)",
+                    new Object[]{count, domainCredentialsMap.size(), elapsed,
+                            TimeUnit.NANOSECONDS.toMillis(loaded - start),
+                            TimeUnit.NANOSECONDS.toMillis(end - loaded)});
+        }
     }
     
+    /**
+     * Constructor for {@link #writeReplace()}.
+     *
+     * @param domainCredentialsMap the credentials to write.
+     */
+    private SystemCredentialsProvider(@NonNull Map<Domain, List<Credentials>> domainCredentialsMap) {
+        this.domainCredentialsMap = domainCredentialsMap;
+    }
+
+    /**
+     * Writes the credentials in the same form as they have always been written.
+     *
+     * @return a copy of this provider holding {@link CopyOnWriteArrayList}s.
+     */
+    private Object writeReplace() {
+        return new SystemCredentialsProvider(DomainCredentials.toCopyOnWriteMap(getDomainCredentialsMap()));
+    }
+
+    /**
+     * Converts the credentials to their in-memory form.
+     *
+     * @param map the credentials.
+     * @return a {@link CopyOnWriteMap.Hash} of {@link PersistentList}s, which is {@code map} if it already is one.
+     */
+    @NonNull
+    private static Map<Domain, List<Credentials>> toPersistentMap(@CheckForNull Map<Domain, List<Credentials>> map) {
+        if (map instanceof CopyOnWriteMap.Hash
+                && map.values().stream().allMatch(PersistentList.class::isInstance)) {
+            return map;
+        }
+        Map<Domain, List<Credentials>> tmp = new LinkedHashMap<>();
+        if (map != null) {
+            for (Map.Entry<Domain, List<Credentials>> entry : map.entrySet()) {
+                tmp.put(entry.getKey() == null ? Domain.global() : entry.getKey().resolve(),
+                        new PersistentList<>(entry.getValue() == null ? Collections.emptyList() : entry.getValue()));
+            }
+        }
+        return new CopyOnWriteMap.Hash<>(tmp);
+    }
+
     /**
      * Ensure the credentials are loaded using SYSTEM during the startup and migration occurs as expected
      */
     @Initializer(after = InitMilestone.JOB_LOADED)
     public static void forceLoadDuringStartup() {
-        getInstance();
+        getInstance().migrateStorage();
+    }
+
+    /**
+     * Completes a change of {@code SystemCredentialsProvider.sharded} by writing the credentials in full in the layout
+     * in use and only then removing the other layout, so that a stale copy is never read instead of the current one.
+     */
+    synchronized void migrateStorage() {
+        XmlFile xml = getConfigFile();
+        try {
+            if (shards != null) {
+                if (xml.exists()) {
+                    shards.save(getDomainCredentialsMap());
+                    Files.deleteIfExists(xml.getFile().toPath());
+                    journal.delete();
+                    LOGGER.log(Level.INFO, "Migrated the credentials to {0}", shards.getManifestFile());
+                }
+            } else {
+                ShardedCredentialsStorage storage = ShardedCredentialsStorage.forSystem();
+                if (storage.exists()) {
+                    write();
+                    LOGGER.log(Level.INFO, "Migrated the credentials to {0}", xml);
+                }
+                // also removes whatever an interrupted migration left behind
+                storage.delete();
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Failed to migrate the existing credentials", e);
+        }
+    }
+
+    /**
+     * Ensure any changes that are waiting to be written are not lost on shutdown.
+     *
+     * @throws IOException if the changes could not be written.
+     */
+    @Terminator
+    @Restricted(NoExternalUse.class)
+    public static void flushDuringShutdown() throws IOException {
+        getInstance().flush();
     }
     
     /**
@@ -173,8 +378,16 @@ public class SystemCredentialsProvider extends AbstractDescribableImpl<SystemCre
      * @since 1.5
      */
     @NonNull
-    public synchronized Map<Domain, List<Credentials>> getDomainCredentialsMap() {
-        return domainCredentialsMap = DomainCredentials.migrateListToMap(domainCredentialsMap, credentials);
+    public Map<Domain, List<Credentials>> getDomainCredentialsMap() {
+        Map<Domain, List<Credentials>> domainCredentialsMap = this.domainCredentialsMap;
+        if (domainCredentialsMap != null && domainCredentialsMap.containsKey(Domain.global())) {
+            // the usual case, readers do not wait for writers
+            return domainCredentialsMap;
+        }
+        synchronized (this) {
+            return this.domainCredentialsMap =
+                    DomainCredentials.migrateListToMap(this.domainCredentialsMap, credentials);
+        }
     }
 
     /**
@@ -184,7 +397,19 @@ public class SystemCredentialsProvider extends AbstractDescribableImpl<SystemCre
      * @since 1.5
      */
     public synchronized void setDomainCredentialsMap(Map<Domain, List<Credentials>> domainCredentialsMap) {
-        this.domainCredentialsMap = DomainCredentials.toCopyOnWriteMap(domainCredentialsMap);
+        this.domainCredentialsMap = toPersistentMap(domainCredentialsMap);
+        this.index.invalidate();
+        CredentialsLookupCache.invalidate();
+    }
+
+    /**
+     * Returns the index of the credentials, rebuilding it if the credentials have been modified.
+     *
+     * @return the index of the credentials.
+     */
+    @NonNull
+    private DomainCredentialsIndex getIndex() {
+        return index.get(getDomainCredentialsMap());
     }
 
     /**
@@ -204,9 +429,22 @@ public class SystemCredentialsProvider extends AbstractDescribableImpl<SystemCre
      * @throws IOException if something goes wrong.
      */
     private void checkedSave(Permission p) throws IOException {
+        checkedSave(p, null);
+    }
+
+    /**
+     * Short-cut method that redundantly checks the specified permission (to catch any typos) and then escalates
+     * authentication in order to save the {@link CredentialsStore}, journaling the change if possible.
+     *
+     * @param p     the permissions of the operation being performed.
+     * @param entry the change or {@code null} if it cannot be journaled.
+     * @throws IOException if something goes wrong.
+     */
+    private synchronized void checkedSave(Permission p, @CheckForNull CredentialsJournal.Entry entry)
+            throws IOException {
         checkPermission(p);
         try (ACLContext ignored = ACL.as2(ACL.SYSTEM2)) {
-            save();
+            save(entry);
         }
     }
 
@@ -227,12 +465,12 @@ public class SystemCredentialsProvider extends AbstractDescribableImpl<SystemCre
                 modified = true;
             }
             if (modified) {
-                checkedSave(CredentialsProvider.MANAGE_DOMAINS);
+                checkedSave(CredentialsProvider.MANAGE_DOMAINS, CredentialsJournal.addDomain(domain, credentials));
             }
             return modified;
         } else {
-            domainCredentialsMap.put(domain, new ArrayList<>(credentials));
-            checkedSave(CredentialsProvider.MANAGE_DOMAINS);
+            domainCredentialsMap.put(domain, new PersistentList<>(credentials));
+            checkedSave(CredentialsProvider.MANAGE_DOMAINS, CredentialsJournal.addDomain(domain, credentials));
             return true;
         }
     }
@@ -245,7 +483,7 @@ public class SystemCredentialsProvider extends AbstractDescribableImpl<SystemCre
         Map<Domain, List<Credentials>> domainCredentialsMap = getDomainCredentialsMap();
         if (domainCredentialsMap.containsKey(domain)) {
             domainCredentialsMap.remove(domain);
-            checkedSave(CredentialsProvider.MANAGE_DOMAINS);
+            checkedSave(CredentialsProvider.MANAGE_DOMAINS, CredentialsJournal.removeDomain(domain));
             return true;
         }
         return false;
@@ -259,7 +497,7 @@ public class SystemCredentialsProvider extends AbstractDescribableImpl<SystemCre
         Map<Domain, List<Credentials>> domainCredentialsMap = getDomainCredentialsMap();
         if (domainCredentialsMap.containsKey(current)) {
             domainCredentialsMap.put(replacement, domainCredentialsMap.remove(current));
-            checkedSave(CredentialsProvider.MANAGE_DOMAINS);
+            checkedSave(CredentialsProvider.MANAGE_DOMAINS, CredentialsJournal.updateDomain(current, replacement));
             return true;
         }
         return false;
@@ -278,7 +516,7 @@ public class SystemCredentialsProvider extends AbstractDescribableImpl<SystemCre
                 return false;
             }
             list.add(credentials);
-            checkedSave(CredentialsProvider.CREATE);
+            checkedSave(CredentialsProvider.CREATE, CredentialsJournal.addCredentials(domain, credentials));
             return true;
         }
         return false;
@@ -288,7 +526,7 @@ public class SystemCredentialsProvider extends AbstractDescribableImpl<SystemCre
      * Implementation for {@link StoreImpl} to delegate to while keeping the lock synchronization simple.
      */
     @NonNull
-    private synchronized List<Credentials> getCredentials(@NonNull Domain domain) {
+    private List<Credentials> getCredentials(@NonNull Domain domain) {
         if (Jenkins.get().hasPermission(CredentialsProvider.VIEW)) {
             List<Credentials> list = getDomainCredentialsMap().get(domain);
             if (list == null || list.isEmpty()) {
@@ -299,6 +537,35 @@ public class SystemCredentialsProvider extends AbstractDescribableImpl<SystemCre
         return Collections.emptyList();
     }
 
+    /**
+     * Implementation for {@link StoreImpl} to delegate to.
+     */
+    @NonNull
+    private <C extends Credentials> List<List<C>> getCredentialsForEach(
+            @NonNull Class<C> type,
+            @NonNull List<List<DomainRequirement>> domainRequirements,
+            @NonNull CredentialsMatcher credentialsMatcher) {
+        if (Jenkins.get().hasPermission(CredentialsProvider.VIEW)) {
+            return getIndex().getCredentialsForEach(type, domainRequirements, credentialsMatcher);
+        }
+        List<List<C>> result = new ArrayList<>(domainRequirements.size());
+        for (int i = 0; i < domainRequirements.size(); i++) {
+            result.add(new ArrayList<>());
+        }
+        return result;
+    }
+
+    /**
+     * Implementation for {@link StoreImpl} to delegate to.
+     */
+    @CheckForNull
+    private Credentials getCredentialsById(@NonNull Domain domain, @NonNull String id) {
+        if (Jenkins.get().hasPermission(CredentialsProvider.VIEW)) {
+            return getIndex().getCredentialById(domain, id);
+        }
+        return null;
+    }
+
     /**
      * Implementation for {@link StoreImpl} to delegate to while keeping the lock synchronization simple.
      */
@@ -312,7 +579,7 @@ public class SystemCredentialsProvider extends AbstractDescribableImpl<SystemCre
                 return false;
             }
             list.remove(credentials);
-            checkedSave(CredentialsProvider.DELETE);
+            checkedSave(CredentialsProvider.DELETE, CredentialsJournal.removeCredentials(domain, credentials));
             return true;
         }
         return false;
@@ -337,18 +604,42 @@ public class SystemCredentialsProvider extends AbstractDescribableImpl<SystemCre
                 return false;
             }
             list.set(index, replacement);
-            checkedSave(CredentialsProvider.UPDATE);
+            checkedSave(CredentialsProvider.UPDATE,
+                    CredentialsJournal.updateCredentials(domain, current, replacement));
             return true;
         }
         return false;
     }
 
     /**
-     * Implementation for {@link ProviderImpl} to delegate to while keeping the lock synchronization simple.
+     * Implementation for {@link StoreImpl} to delegate to while keeping the lock synchronization simple.
+     */
+    private synchronized void batch(@NonNull Consumer<CredentialsStore.Batch> changes) throws IOException {
+        CredentialsBatch batch = new CredentialsBatch(getDomainCredentialsMap(), this::checkPermission);
+        changes.accept(batch);
+        if (batch.isModified()) {
+            // readers see either none or all of the changes
+            domainCredentialsMap = toPersistentMap(batch.getDomainCredentialsMap());
+            try (ACLContext ignored = ACL.as2(ACL.SYSTEM2)) {
+                save();
+            }
+        }
+    }
+
+    /**
+     * Implementation for {@link ProviderImpl} to delegate to. The store is created by the constructors, so this only
+     * takes the lock for an instance that was created without them.
      */
-    private synchronized StoreImpl getStore() {
+    private StoreImpl getStore() {
+        StoreImpl store = this.store;
         if (store == null) {
-            store = new StoreImpl();
+            synchronized (this) {
+                store = this.store;
+                if (store == null) {
+                    store = new StoreImpl();
+                    this.store = store;
+                }
+            }
         }
         return store;
     }
@@ -357,15 +648,123 @@ public class SystemCredentialsProvider extends AbstractDescribableImpl<SystemCre
      * {@inheritDoc}
      */
     public void save() throws IOException {
+        save(null);
+    }
+
+    /**
+     * Saves the credentials, journaling the change if possible.
+     *
+     * @param entry the change made through the {@link CredentialsStore} while holding the lock, or {@code null} if
+     *              it cannot be journaled.
+     * @throws IOException if the credentials could not be saved.
+     */
+    private void save(@CheckForNull CredentialsJournal.Entry entry) throws IOException {
         checkPermission(Jenkins.ADMINISTER);
+        // the in-memory state has already changed, even if persisting it is deferred
+        index.invalidate();
+        CredentialsLookupCache.invalidate();
         if (BulkChange.contains(this)) {
             return;
         }
         XmlFile configFile = getConfigFile();
+        if (JOURNAL && shards == null && entry != null && configFile.exists()) {
+            if (dirty) {
+                // the journal must not apply to a stale file, and writing it in full includes this change anyway
+                flush();
+                return;
+            }
+            if (journal.append(configFile, entry) > JOURNAL_COMPACTION_BYTES && !compactionScheduled) {
+                compactionScheduled = true;
+                Timer.get().submit(this::compact);
+            }
+            SaveableListener.fireOnChange(this, configFile);
+            return;
+        }
+        if (WRITE_BEHIND_MILLIS > 0) {
+            synchronized (this) {
+                dirty = true;
+                if (!writeScheduled) {
+                    // later changes are picked up by the same write, so no change waits longer than the delay
+                    writeScheduled = true;
+                    Timer.get().schedule(this::writeBehind, WRITE_BEHIND_MILLIS, TimeUnit.MILLISECONDS);
+                }
+            }
+            return;
+        }
+        SaveableListener.fireOnChange(this, write());
+    }
+
+    /**
+     * Writes the credentials to disk. Holds the lock used by the changes made through the store, so that no change can
+     * be appended to the journal between the rewrite of {@link #getConfigFile()} and the removal of the journal.
+     *
+     * @return the file that was written.
+     * @throws IOException if the credentials could not be written.
+     */
+    private synchronized XmlFile write() throws IOException {
+        ShardedCredentialsStorage shards = this.shards;
+        if (shards != null) {
+            shards.save(getDomainCredentialsMap());
+            return shards.getManifestFile();
+        }
+        XmlFile configFile = getConfigFile();
         configFile.write(this);
+        journal.delete();
+        return configFile;
+    }
+
+    /**
+     * Writes the journaled changes to {@link #getConfigFile()} so that the journal can be discarded.
+     */
+    private void compact() {
+        try {
+            XmlFile configFile;
+            synchronized (this) {
+                compactionScheduled = false;
+                configFile = write();
+                dirty = false;
+            }
+            SaveableListener.fireOnChange(this, configFile);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to compact " + journal.getFile(), e);
+        }
+    }
+
+    /**
+     * Writes any changes that are waiting to be written to disk. Only needed by callers that require their changes
+     * to be durable when {@code SystemCredentialsProvider.writeBehindMillis} is set, otherwise every change is
+     * written as part of {@link #save()}.
+     *
+     * @throws IOException if the changes could not be written.
+     * @since TODO
+     */
+    public void flush() throws IOException {
+        XmlFile configFile;
+        synchronized (this) {
+            if (!dirty) {
+                return;
+            }
+            configFile = write();
+            dirty = false;
+        }
         SaveableListener.fireOnChange(this, configFile);
     }
 
+    /**
+     * Writes the pending changes from the background.
+     */
+    private void writeBehind() {
+        synchronized (this) {
+            writeScheduled = false;
+        }
+        try {
+            flush();
+        } catch (IOException e) {
+            // still dirty, so the next change or flush will try again
+            LOGGER.log(Level.WARNING, "Failed to write the credentials", e);
+        }
+    }
+
     /**
      * Our management link descriptor.
      */
@@ -434,12 +833,48 @@ public class SystemCredentialsProvider extends AbstractDescribableImpl<SystemCre
                                                                          @NonNull List<DomainRequirement> domainRequirements) {
             if (ACL.SYSTEM2.equals(authentication)) {
                 CredentialsMatcher matcher = Jenkins.get() == itemGroup ? always() : not(withScope(SYSTEM));
-                return DomainCredentials.getCredentials(SystemCredentialsProvider.getInstance()
-                        .getDomainCredentialsMap(), type, domainRequirements, matcher);
+                return SystemCredentialsProvider.getInstance().getIndex()
+                        .getCredentials(type, domainRequirements, matcher);
             }
             return new ArrayList<>();
         }
 
+        /**
+         * {@inheritDoc}
+         */
+        @NonNull
+        @Override
+        public <C extends Credentials> Stream<C> getCredentialsStreamInItemGroup(@NonNull Class<C> type,
+                                                                               @NonNull ItemGroup itemGroup,
+                                                                               @NonNull Authentication authentication,
+                                                                               @NonNull List<DomainRequirement>
+                                                                                       domainRequirements) {
+            if (ACL.SYSTEM2.equals(authentication)) {
+                CredentialsMatcher matcher = Jenkins.get() == itemGroup ? always() : not(withScope(SYSTEM));
+                return SystemCredentialsProvider.getInstance().getIndex()
+                        .streamCredentials(type, domainRequirements, matcher);
+            }
+            return Stream.empty();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @CheckForNull
+        @Override
+        public <C extends IdCredentials> C getCredentialByIdInItemGroup(@NonNull String id, @NonNull Class<C> type,
+                                                                        @NonNull ItemGroup<?> itemGroup,
+                                                                        @NonNull Authentication authentication,
+                                                                        @NonNull List<DomainRequirement>
+                                                                                domainRequirements) {
+            if (ACL.SYSTEM2.equals(authentication)) {
+                CredentialsMatcher matcher = Jenkins.get() == itemGroup ? always() : not(withScope(SYSTEM));
+                return SystemCredentialsProvider.getInstance().getIndex()
+                        .getCredentialById(id, type, domainRequirements, matcher);
+            }
+            return null;
+        }
+
         /**
          * {@inheritDoc}
          */
@@ -449,12 +884,46 @@ public class SystemCredentialsProvider extends AbstractDescribableImpl<SystemCre
                                                                     @Nullable Authentication authentication,
                                                                     @NonNull List<DomainRequirement> domainRequirements) {
             if (ACL.SYSTEM2.equals(authentication)) {
-                return DomainCredentials.getCredentials(SystemCredentialsProvider.getInstance()
-                        .getDomainCredentialsMap(), type, domainRequirements, not(withScope(SYSTEM)));
+                return SystemCredentialsProvider.getInstance().getIndex()
+                        .getCredentials(type, domainRequirements, not(withScope(SYSTEM)));
             }
             return new ArrayList<>();
         }
 
+        /**
+         * {@inheritDoc}
+         */
+        @NonNull
+        @Override
+        public <C extends Credentials> Stream<C> getCredentialsStreamInItem(@NonNull Class<C> type,
+                                                                          @NonNull Item item,
+                                                                          @NonNull Authentication authentication,
+                                                                          @NonNull List<DomainRequirement>
+                                                                                  domainRequirements) {
+            if (ACL.SYSTEM2.equals(authentication)) {
+                return SystemCredentialsProvider.getInstance().getIndex()
+                        .streamCredentials(type, domainRequirements, not(withScope(SYSTEM)));
+            }
+            return Stream.empty();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @CheckForNull
+        @Override
+        public <C extends IdCredentials> C getCredentialByIdInItem(@NonNull String id, @NonNull Class<C> type,
+                                                                   @NonNull Item item,
+                                                                   @NonNull Authentication authentication,
+                                                                   @NonNull List<DomainRequirement>
+                                                                           domainRequirements) {
+            if (ACL.SYSTEM2.equals(authentication)) {
+                return SystemCredentialsProvider.getInstance().getIndex()
+                        .getCredentialById(id, type, domainRequirements, not(withScope(SYSTEM)));
+            }
+            return null;
+        }
+
         @Override
         public String getIconClassName() {
             return "symbol-jenkins";
@@ -524,6 +993,27 @@ public class SystemCredentialsProvider extends AbstractDescribableImpl<SystemCre
             return SystemCredentialsProvider.getInstance().getCredentials(domain);
         }
 
+        /**
+         * {@inheritDoc}
+         */
+        @CheckForNull
+        @Override
+        public Credentials getCredentialsById(@NonNull Domain domain, @NonNull String id) {
+            return SystemCredentialsProvider.getInstance().getCredentialsById(domain, id);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @NonNull
+        @Override
+        public <C extends Credentials> List<List<C>> getCredentialsForEach(
+                @NonNull Class<C> type,
+                @NonNull List<List<DomainRequirement>> domainRequirements,
+                @NonNull CredentialsMatcher credentialsMatcher) {
+            return SystemCredentialsProvider.getInstance().getCredentialsForEach(type, domainRequirements, credentialsMatcher);
+        }
+
         /**
          * {@inheritDoc}
          */
@@ -573,6 +1063,14 @@ public class SystemCredentialsProvider extends AbstractDescribableImpl<SystemCre
             return SystemCredentialsProvider.getInstance().updateCredentials(domain, current, replacement);
         }
 
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void batch(@NonNull Consumer<Batch> changes) throws IOException {
+            SystemCredentialsProvider.getInstance().batch(changes);
+        }
+
         /**
          * {@inheritDoc}
          */
@@ -26,16 +26,17 @@ package com.cloudbees.plugins.credentials;
 import com.cloudbees.plugins.credentials.common.IdCredentials;
 import com.cloudbees.plugins.credentials.domains.Domain;
 import com.cloudbees.plugins.credentials.domains.DomainCredentials;
+import com.cloudbees.plugins.credentials.domains.DomainCredentialsIndex;
 import com.cloudbees.plugins.credentials.domains.DomainRequirement;
 import com.cloudbees.plugins.credentials.domains.DomainSpecification;
 import edu.umd.cs.findbugs.annotations.CheckForNull;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import edu.umd.cs.findbugs.annotations.Nullable;
-import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import hudson.BulkChange;
 import hudson.DescriptorExtensionList;
 import hudson.Extension;
 import hudson.model.Descriptor;
+import hudson.model.Item;
 import hudson.model.ItemGroup;
 import hudson.model.ModelObject;
 import hudson.model.User;
@@ -54,9 +55,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.WeakHashMap;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import jenkins.model.Jenkins;
 import net.jcip.annotations.GuardedBy;
 import net.sf.json.JSONObject;
@@ -135,8 +138,8 @@ public class UserCredentialsProvider extends CredentialsProvider {
                 if (property != null) {
                     // we need to impersonate if the requesting authentication is not the current authentication.
                     boolean needImpersonation = !user.equals(User.current());
-                    Supplier<List<C>> credentials = () -> DomainCredentials
-                                .getCredentials(property.getDomainCredentialsMap(), type, domainRequirements, always());
+                    Supplier<List<C>> credentials = () -> property.getIndex()
+                            .getCredentials(type, domainRequirements, always());
                     if (needImpersonation) {
                         try (ACLContext ac = ACL.as(user)) {
                             return credentials.get();
@@ -150,6 +153,85 @@ public class UserCredentialsProvider extends CredentialsProvider {
         return Collections.emptyList();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public <C extends Credentials> Stream<C> getCredentialsStreamInItemGroup(@NonNull Class<C> type,
+                                                                           @NonNull ItemGroup itemGroup,
+                                                                           @NonNull Authentication authentication,
+                                                                           @NonNull List<DomainRequirement>
+                                                                                   domainRequirements) {
+        // ignore itemGroup, as per-user credentials are available on any object
+        if (!ACL.SYSTEM2.equals(authentication)) {
+            User user = User.get2(authentication);
+            if (user != null) {
+                UserCredentialsProperty property = user.getProperty(UserCredentialsProperty.class);
+                if (property != null) {
+                    // the permission check happens when we get the map, the stream itself needs no authentication
+                    DomainCredentialsIndex index;
+                    if (!user.equals(User.current())) {
+                        try (ACLContext ac = ACL.as(user)) {
+                            index = property.getIndex();
+                        }
+                    } else {
+                        index = property.getIndex();
+                    }
+                    return index.streamCredentials(type, domainRequirements, always());
+                }
+            }
+        }
+        return Stream.empty();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @CheckForNull
+    @Override
+    public <C extends IdCredentials> C getCredentialByIdInItemGroup(@NonNull String id, @NonNull Class<C> type,
+                                                                    @NonNull ItemGroup<?> itemGroup,
+                                                                    @NonNull Authentication authentication,
+                                                                    @NonNull List<DomainRequirement>
+                                                                            domainRequirements) {
+        // ignore itemGroup, as per-user credentials are available on any object
+        if (!ACL.SYSTEM2.equals(authentication)) {
+            User user = User.get2(authentication);
+            if (user != null) {
+                UserCredentialsProperty property = user.getProperty(UserCredentialsProperty.class);
+                if (property != null) {
+                    // we need to impersonate if the requesting authentication is not the current authentication.
+                    boolean needImpersonation = !user.equals(User.current());
+                    Supplier<C> credential = () -> property.getIndex()
+                            .getCredentialById(id, type, domainRequirements, always());
+                    if (needImpersonation) {
+                        try (ACLContext ac = ACL.as(user)) {
+                            return credential.get();
+                        }
+                    } else {
+                        return credential.get();
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @CheckForNull
+    @Override
+    public <C extends IdCredentials> C getCredentialByIdInItem(@NonNull String id, @NonNull Class<C> type,
+                                                               @NonNull Item item,
+                                                               @NonNull Authentication authentication,
+                                                               @NonNull List<DomainRequirement>
+                                                                       domainRequirements) {
+        return getCredentialByIdInItemGroup(id, type, item instanceof ItemGroup ? (ItemGroup<?>) item
+                : item.getParent(), authentication, domainRequirements);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -176,8 +258,12 @@ public class UserCredentialsProvider extends CredentialsProvider {
          *
          * @since 1.5
          */
-        @SuppressFBWarnings("IS2_INCONSISTENT_SYNC")
-        private Map<Domain, List<Credentials>> domainCredentialsMap;
+        private volatile Map<Domain, List<Credentials>> domainCredentialsMap;
+
+        /**
+         * The index of {@link #domainCredentialsMap}.
+         */
+        private transient DomainCredentialsIndexHolder index = new DomainCredentialsIndexHolder();
 
         /**
          * Backwards compatibility.
@@ -211,6 +297,7 @@ public class UserCredentialsProvider extends CredentialsProvider {
             if (domainCredentialsMap == null) {
                 return new UserCredentialsProperty(credentials);
             }
+            index = new DomainCredentialsIndexHolder();
             return this;
         }
 
@@ -261,9 +348,17 @@ public class UserCredentialsProvider extends CredentialsProvider {
          */
         @SuppressWarnings("deprecation")
         @NonNull
-        public synchronized Map<Domain, List<Credentials>> getDomainCredentialsMap() {
+        public Map<Domain, List<Credentials>> getDomainCredentialsMap() {
             checkPermission(CredentialsProvider.VIEW);
-            return domainCredentialsMap = DomainCredentials.migrateListToMap(domainCredentialsMap, credentials);
+            Map<Domain, List<Credentials>> domainCredentialsMap = this.domainCredentialsMap;
+            if (domainCredentialsMap != null && domainCredentialsMap.containsKey(Domain.global())) {
+                // the usual case, readers do not wait for writers
+                return domainCredentialsMap;
+            }
+            synchronized (this) {
+                return this.domainCredentialsMap =
+                        DomainCredentials.migrateListToMap(this.domainCredentialsMap, credentials);
+            }
         }
 
         /**
@@ -275,6 +370,18 @@ public class UserCredentialsProvider extends CredentialsProvider {
         public synchronized void setDomainCredentialsMap(Map<Domain, List<Credentials>> domainCredentialsMap) {
             checkPermission(CredentialsProvider.MANAGE_DOMAINS);
             this.domainCredentialsMap = DomainCredentials.toCopyOnWriteMap(domainCredentialsMap);
+            this.index.invalidate();
+            CredentialsLookupCache.invalidate();
+        }
+
+        /**
+         * Returns the index of the credentials, rebuilding it if the credentials have been modified.
+         *
+         * @return the index of the credentials.
+         */
+        @NonNull
+        private DomainCredentialsIndex getIndex() {
+            return index.get(getDomainCredentialsMap());
         }
 
         /**
@@ -357,7 +464,7 @@ public class UserCredentialsProvider extends CredentialsProvider {
          * Implementation for {@link StoreImpl} to delegate to while keeping the lock synchronization simple.
          */
         @NonNull
-        private synchronized List<Credentials> getCredentials(@NonNull Domain domain) {
+        private List<Credentials> getCredentials(@NonNull Domain domain) {
             if (user.equals(User.current())) {
                 List<Credentials> list = getDomainCredentialsMap().get(domain);
                 if (list == null || list.isEmpty()) {
@@ -368,6 +475,35 @@ public class UserCredentialsProvider extends CredentialsProvider {
             return Collections.emptyList();
         }
 
+        /**
+         * Implementation for {@link StoreImpl} to delegate to.
+         */
+        @NonNull
+        private <C extends Credentials> List<List<C>> getCredentialsForEach(
+                @NonNull Class<C> type,
+                @NonNull List<List<DomainRequirement>> domainRequirements,
+                @NonNull CredentialsMatcher credentialsMatcher) {
+            if (user.equals(User.current())) {
+                return getIndex().getCredentialsForEach(type, domainRequirements, credentialsMatcher);
+            }
+            List<List<C>> result = new ArrayList<>(domainRequirements.size());
+            for (int i = 0; i < domainRequirements.size(); i++) {
+                result.add(new ArrayList<>());
+            }
+            return result;
+        }
+
+        /**
+         * Implementation for {@link StoreImpl} to delegate to.
+         */
+        @CheckForNull
+        private Credentials getCredentialsById(@NonNull Domain domain, @NonNull String id) {
+            if (user.equals(User.current())) {
+                return getIndex().getCredentialById(domain, id);
+            }
+            return null;
+        }
+
         /**
          * Implementation for {@link StoreImpl} to delegate to while keeping the lock synchronization simple.
          */
@@ -412,6 +548,19 @@ public class UserCredentialsProvider extends CredentialsProvider {
             return false;
         }
 
+        /**
+         * Implementation for {@link StoreImpl} to delegate to while keeping the lock synchronization simple.
+         */
+        private synchronized void batch(@NonNull Consumer<CredentialsStore.Batch> changes) throws IOException {
+            CredentialsBatch batch = new CredentialsBatch(getDomainCredentialsMap(), this::checkPermission);
+            changes.accept(batch);
+            if (batch.isModified()) {
+                // readers see either none or all of the changes
+                domainCredentialsMap = DomainCredentials.toCopyOnWriteMap(batch.getDomainCredentialsMap());
+                save();
+            }
+        }
+
         /**
          * Helper method to check the specified permission.
          *
@@ -431,6 +580,8 @@ public class UserCredentialsProvider extends CredentialsProvider {
          * @throws IOException if something goes wrong.
          */
         private void save() throws IOException {
+            index.invalidate();
+            CredentialsLookupCache.invalidate();
             if (user.equals(User.current())) {
                 UserCredentialsProperty property = user.getProperty(UserCredentialsProperty.class);
                 if (property == null) {
@@ -707,6 +858,27 @@ public class UserCredentialsProvider extends CredentialsProvider {
             return getInstance().getCredentials(domain);
         }
 
+        /**
+         * {@inheritDoc}
+         */
+        @CheckForNull
+        @Override
+        public Credentials getCredentialsById(@NonNull Domain domain, @NonNull String id) {
+            return getInstance().getCredentialsById(domain, id);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @NonNull
+        @Override
+        public <C extends Credentials> List<List<C>> getCredentialsForEach(
+                @NonNull Class<C> type,
+                @NonNull List<List<DomainRequirement>> domainRequirements,
+                @NonNull CredentialsMatcher credentialsMatcher) {
+            return getInstance().getCredentialsForEach(type, domainRequirements, credentialsMatcher);
+        }
+
         /**
          * {@inheritDoc}
          */
@@ -756,6 +928,14 @@ public class UserCredentialsProvider extends CredentialsProvider {
             return getInstance().updateCredentials(domain, current, replacement);
         }
 
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void batch(@NonNull Consumer<Batch> changes) throws IOException {
+            getInstance().batch(changes);
+        }
+
         /**
          * {@inheritDoc}
          */
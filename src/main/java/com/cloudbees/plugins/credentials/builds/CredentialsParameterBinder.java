@@ -75,6 +75,11 @@ public final class CredentialsParameterBinder extends InvisibleAction {
 
     private final Map<String, CredentialsParameterBinding> boundCredentials = new ConcurrentHashMap<>();
 
+    /**
+     * The authentication context of the run while it is building, not persisted as it is cheap enough to compute.
+     */
+    private transient volatile RunCredentialsContext context;
+
     /**
      * Binds a credentials parameter with an optional user ID. User credentials require a user ID.
      */
@@ -98,4 +103,13 @@ public final class CredentialsParameterBinder extends InvisibleAction {
     boolean isEmpty() {
         return boundCredentials.isEmpty();
     }
+
+    @CheckForNull
+    RunCredentialsContext getContext() {
+        return context;
+    }
+
+    void setContext(@CheckForNull RunCredentialsContext context) {
+        this.context = context;
+    }
 }
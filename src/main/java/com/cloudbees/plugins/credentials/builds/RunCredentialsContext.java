@@ -0,0 +1,182 @@
+package com.cloudbees.plugins.credentials.builds;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.model.Cause;
+import hudson.model.Run;
+import hudson.model.User;
+import hudson.security.Permission;
+import java.util.Collections;
+import jenkins.model.Jenkins;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import org.springframework.security.core.Authentication;
+
+/**
+ * The authentication context used to resolve credentials on behalf of a {@link Run}: who triggered it, the
+ * {@link Authentication} of the users involved and their permissions on the run.
+ * <p>
+ * Working out who triggered the run can require walking a long chain of {@link Cause.UpstreamCause}s, loading each
+ * upstream build, so the ID of that user is computed once and kept with the run's {@link CredentialsParameterBinder}
+ * while the run is building. Users are impersonated and permissions are checked on every call, so that changes to
+ * users and to the authorization configuration take effect immediately.
+ *
+ * @since TODO
+ */
+@Restricted(NoExternalUse.class)
+public final class RunCredentialsContext {
+
+    /**
+     * The run.
+     */
+    @NonNull
+    private final Run<?, ?> run;
+
+    /**
+     * Who triggered the run, lazily computed as not every lookup needs it.
+     */
+    @CheckForNull
+    private volatile Trigger trigger;
+
+    /**
+     * Constructor.
+     *
+     * @param run the run.
+     */
+    private RunCredentialsContext(@NonNull Run<?, ?> run) {
+        this.run = run;
+    }
+
+    /**
+     * Returns the context of the supplied run, creating it if required. The context is only reused while the run is
+     * building.
+     *
+     * @param run the run.
+     * @return the context of the run.
+     */
+    @NonNull
+    public static RunCredentialsContext of(@NonNull Run<?, ?> run) {
+        CredentialsParameterBinder binder = CredentialsParameterBinder.getOrCreate(run);
+        if (!run.isLogUpdated()) {
+            // nothing is kept once the run has completed
+            binder.setContext(null);
+            return new RunCredentialsContext(run);
+        }
+        RunCredentialsContext context = binder.getContext();
+        if (context == null) {
+            context = new RunCredentialsContext(run);
+            binder.setContext(context);
+        }
+        return context;
+    }
+
+    /**
+     * Returns who triggered the run, computing it if required.
+     *
+     * @return who triggered the run.
+     */
+    @NonNull
+    private Trigger trigger() {
+        Trigger trigger = this.trigger;
+        if (trigger == null) {
+            trigger = Trigger.of(run);
+            this.trigger = trigger;
+        }
+        return trigger;
+    }
+
+    /**
+     * Returns the user that triggered the run or one of its upstream runs.
+     *
+     * @return the user that triggered the run or {@code null} if this could not be determined.
+     */
+    @CheckForNull
+    public User getTriggeredBy() {
+        String userId = trigger().userId;
+        return userId == null ? null : User.get(userId, false, Collections.emptyMap());
+    }
+
+    /**
+     * Returns {@code true} if {@link #getTriggeredBy()} triggered the run directly rather than one of its upstream
+     * runs.
+     *
+     * @return {@code true} if the run was triggered directly by a user.
+     */
+    public boolean isTriggeredDirectly() {
+        return trigger().direct && getTriggeredBy() != null;
+    }
+
+    /**
+     * Returns the authentication of {@link #getTriggeredBy()}.
+     *
+     * @return the authentication of the user that triggered the run or {@link Jenkins#ANONYMOUS2}.
+     */
+    @NonNull
+    public Authentication getAuthentication() {
+        User user = getTriggeredBy();
+        return user == null ? Jenkins.ANONYMOUS2 : user.impersonate2();
+    }
+
+    /**
+     * Returns the authentication of the user that supplied a parameter value.
+     *
+     * @param userId the id of the user.
+     * @return the authentication of the user or {@code null} if the user does not exist.
+     */
+    @CheckForNull
+    public Authentication getAuthentication(@NonNull String userId) {
+        User user = User.getById(userId, false);
+        return user == null ? null : user.impersonate2();
+    }
+
+    /**
+     * Checks whether the supplied authentication has a permission on the run.
+     *
+     * @param authentication the authentication.
+     * @param permission     the permission.
+     * @return {@code true} if the authentication has the permission.
+     */
+    public boolean hasPermission(@NonNull Authentication authentication, @NonNull Permission permission) {
+        return run.hasPermission2(authentication, permission);
+    }
+
+    /**
+     * The user that triggered a run or one of its upstream runs.
+     */
+    private static final class Trigger {
+        /**
+         * The ID of the user, if known.
+         */
+        @CheckForNull
+        private final String userId;
+        /**
+         * {@code true} if {@link #userId} triggered the run directly rather than one of its upstream runs.
+         */
+        private final boolean direct;
+
+        Trigger(@CheckForNull String userId, boolean direct) {
+            this.userId = userId;
+            this.direct = direct;
+        }
+
+        /**
+         * Identifies the {@link User} that triggered the supplied {@link Run}.
+         *
+         * @param run the {@link Run} to find the trigger of.
+         * @return the trigger of the supplied run.
+         */
+        @NonNull
+        static Trigger of(@NonNull Run<?, ?> run) {
+            Run<?, ?> current = run;
+            while (current != null) {
+                Cause.UserIdCause cause = current.getCause(Cause.UserIdCause.class);
+                if (cause != null) {
+                    return new Trigger(cause.getUserId(), current == run);
+                }
+                Cause.UpstreamCause c = current.getCause(Cause.UpstreamCause.class);
+                current = c != null ? c.getUpstreamRun() : null;
+            }
+            return new Trigger(null, false);
+        }
+    }
+}
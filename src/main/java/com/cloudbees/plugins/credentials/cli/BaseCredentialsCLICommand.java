@@ -53,6 +53,10 @@ import org.xml.sax.SAXException;
  */
 public abstract class BaseCredentialsCLICommand extends CLICommand {
     protected static Credentials getCredentialsById(CredentialsStore store, Domain domain, String id) {
+        if (!id.startsWith("index-")) {
+            // only credentials without an ID are addressed by their position
+            return store.getCredentialsById(domain, id);
+        }
         List<Credentials> credentialsList = store.getCredentials(domain);
         Set<String> ids = new HashSet<>(credentialsList.size());
         Credentials existing = null;
@@ -28,11 +28,14 @@ public class ImportCredentialsAsXmlCommand extends BaseCredentialsCLICommand {
         store.checkPermission(CredentialsProvider.CREATE);
         store.checkPermission(CredentialsProvider.MANAGE_DOMAINS);
         List<DomainCredentials> replacement = (List<DomainCredentials>) Items.XSTREAM.unmarshal(safeXmlStreamReader(stdin));
-        for (DomainCredentials domain : replacement) {
-            for (Credentials credentials : domain.getCredentials()) {
-                store.addDomain(domain.getDomain(), credentials);
+        // a single save however many credentials are imported
+        store.batch(batch -> {
+            for (DomainCredentials domain : replacement) {
+                for (Credentials credentials : domain.getCredentials()) {
+                    batch.addDomain(domain.getDomain(), List.of(credentials));
+                }
             }
-        }
+        });
         return 0;
     }
 
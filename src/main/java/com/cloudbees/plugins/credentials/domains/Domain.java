@@ -34,8 +34,12 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
 import org.kohsuke.stapler.DataBoundConstructor;
 
 /**
@@ -50,6 +54,14 @@ public class Domain implements Serializable {
      */
     private static final long serialVersionUID = 1L;
 
+    /**
+     * The maximum number of requirement lists to remember the result of {@link #test(List)} for, per domain.
+     * {@code 0} or less disables remembering.
+     */
+    @Restricted(NoExternalUse.class)
+    /* package-protected */ static /* not final */ int MEMO_SIZE =
+            Integer.getInteger(Domain.class.getName() + ".memoSize", 64);
+
     /**
      * The name of the domain, or {@code null} if the special "global" domain.
      */
@@ -68,6 +80,13 @@ public class Domain implements Serializable {
     @NonNull
     private final List<DomainSpecification> specifications;
 
+    /**
+     * The remembered results of {@link #test(List)}. As the specifications never change, a replacement domain from
+     * {@link com.cloudbees.plugins.credentials.CredentialsStore#updateDomain(Domain, Domain)} starts afresh.
+     */
+    @CheckForNull
+    private transient volatile Map<List<DomainRequirement>, Boolean> memo;
+
     @DataBoundConstructor
     public Domain(String name, String description, List<DomainSpecification> specifications) {
         this.name = Util.fixEmptyAndTrim(name);
@@ -165,6 +184,16 @@ public class Domain implements Serializable {
         return equals(global());
     }
 
+    /**
+     * Tests if this domain matches any requirements, which is the case of the {@link #global()} domain and of any
+     * other domain without specifications.
+     *
+     * @return {@code true} if and only if {@link #test(List)} is always {@code true}.
+     */
+    boolean matchesAll() {
+        return specifications.isEmpty();
+    }
+
     /**
      * Returns {@code true} if and only if the supplied {@link DomainRequirement}s are a match for this {@link Domain}.
      *
@@ -182,28 +211,85 @@ public class Domain implements Serializable {
      * @return {@code true} if and only if the supplied {@link DomainRequirement}s are a match for this {@link Domain}.
      */
     public boolean test(@NonNull List<DomainRequirement> requirements) {
-        for (DomainRequirement scope : requirements) {
-            if (scope == null) {
-                continue;
+        if (requirements.isEmpty() || matchesAll()) {
+            return true;
+        }
+        if (MEMO_SIZE <= 0 || !isMemoizable(requirements)) {
+            return doTest(requirements);
+        }
+        Map<List<DomainRequirement>, Boolean> memo = this.memo;
+        if (memo == null) {
+            memo = this.memo = new ConcurrentHashMap<>();
+        }
+        Boolean result = memo.get(requirements);
+        if (result == null) {
+            result = doTest(requirements);
+            if (memo.size() >= MEMO_SIZE) {
+                // a domain normally only sees a handful of distinct requirements, so start over rather than track use
+                memo.clear();
             }
-            for (DomainSpecification matcher : specifications) {
-                DomainSpecification.Result result = matcher.test(scope);
-                if (result.isDefinitive()) {
-                    if (result.isMatch()) {
-                        // we have matched this scope => continue with next scope
-                        break;
-                    } else {
-                        // we have a non-test => done
-                        return false;
-                    }
-                }
-                // continue as nothing is definitive
+            memo.put(List.copyOf(requirements), result);
+        }
+        return result;
+    }
+
+    /**
+     * Checks whether the result of {@link #test(List)} can be remembered for the supplied requirements, which is
+     * only the case when they are all of the types provided by this plugin, that are immutable and define equality.
+     *
+     * @param requirements the requirements.
+     * @return {@code true} if the result can be remembered.
+     */
+    private static boolean isMemoizable(@NonNull List<DomainRequirement> requirements) {
+        for (DomainRequirement requirement : requirements) {
+            if (requirement == null) {
+                return false;
+            }
+            Class<?> clazz = requirement.getClass();
+            if (clazz != HostnameRequirement.class && clazz != HostnamePortRequirement.class
+                    && clazz != SchemeRequirement.class && clazz != PathRequirement.class) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Tests the supplied requirements against the specifications.
+     *
+     * @param requirements the {@link DomainRequirement}s  to test.
+     * @return {@code true} if and only if the supplied {@link DomainRequirement}s are a match for this {@link Domain}.
+     */
+    private boolean doTest(@NonNull List<DomainRequirement> requirements) {
+        for (DomainRequirement scope : requirements) {
+            if (scope != null && !accepts(scope)) {
+                // we have a non-test => done
+                return false;
             }
         }
         // must be a test
         return true;
     }
 
+    /**
+     * Tests a single requirement against the specifications, {@link #test(List)} is {@code true} if and only if
+     * this is {@code true} for each of the non-null requirements.
+     *
+     * @param requirement the {@link DomainRequirement} to test.
+     * @return {@code false} if a specification definitively rejects the requirement.
+     */
+    boolean accepts(@NonNull DomainRequirement requirement) {
+        for (DomainSpecification matcher : specifications) {
+            DomainSpecification.Result result = matcher.test(requirement);
+            if (result.isDefinitive()) {
+                // the first definitive result decides
+                return result.isMatch();
+            }
+            // continue as nothing is definitive
+        }
+        return true;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -36,6 +36,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
 import org.kohsuke.stapler.DataBoundConstructor;
 
 /**
@@ -189,17 +190,7 @@ public class DomainCredentials {
         for (Map.Entry<Domain, List<Credentials>> entry : domainCredentialsMap.entrySet()) {
             if (entry.getKey().test(domainRequirements)) {
                 for (Credentials credential : entry.getValue()) {
-                    if (!type.isInstance(credential)) {
-                        continue;
-                    }
-                    // If the credentials have a native restriction that isn't imposed
-                    // by the Domain, give the Credentials a chance to self-restrict
-                    // themselves from being surfaced.
-                    if (credential instanceof DomainRestrictedCredentials
-                            && !((DomainRestrictedCredentials) credential).matches(domainRequirements)) {
-                        continue;
-                    }
-                    if (credentialsMatcher.matches(credential)) {
+                    if (matches(credential, type, domainRequirements, credentialsMatcher)) {
                         result.add(type.cast(credential));
                     }
                 }
@@ -208,6 +199,85 @@ public class DomainCredentials {
         return result;
     }
 
+    /**
+     * Returns the credentials from the map that match each of the supplied lists of requirements, the same as calling
+     * {@link #getCredentials(Map, Class, List, CredentialsMatcher)} for each list but in a single pass over the
+     * domains, so that callers with many URIs to resolve do not test every domain for every URI.
+     *
+     * @param domainCredentialsMap the map of credentials.
+     * @param type                 the type of credentials to match.
+     * @param domainRequirements   the lists of domain requirements.
+     * @param credentialsMatcher   the credentials matcher.
+     * @param <C>                  the type of credentials.
+     * @return the matching credentials of each list of domain requirements, in the same order.
+     * @since TODO
+     */
+    @NonNull
+    public static <C extends Credentials> List<List<C>> getCredentialsForEach(
+            @NonNull Map<Domain, List<Credentials>> domainCredentialsMap,
+            @NonNull Class<C> type,
+            @NonNull List<List<DomainRequirement>> domainRequirements,
+            @NonNull CredentialsMatcher credentialsMatcher) {
+        DomainCredentialsBatch<C> batch = new DomainCredentialsBatch<>(type, domainRequirements, credentialsMatcher);
+        for (Map.Entry<Domain, List<Credentials>> entry : domainCredentialsMap.entrySet()) {
+            batch.add(entry.getKey(), entry.getKey().matchesAll(), slot -> true, entry.getValue());
+        }
+        return batch.results();
+    }
+
+    /**
+     * Lazily streams the credentials from the map that match the supplied type, requirements and matcher. The stream
+     * contains the same credentials in the same order as {@link #getCredentials(Map, Class, List, CredentialsMatcher)}
+     * but each domain is only tested when the stream reaches it.
+     *
+     * @param domainCredentialsMap the map of credentials.
+     * @param type                 the type of credentials to match.
+     * @param domainRequirements   the domain requirements.
+     * @param credentialsMatcher   the credentials matcher.
+     * @param <C>                  the type of credentials.
+     * @return the stream of matching credentials.
+     * @since TODO
+     */
+    @NonNull
+    public static <C extends Credentials> Stream<C> streamCredentials(
+            @NonNull Map<Domain, List<Credentials>> domainCredentialsMap,
+            @NonNull Class<C> type,
+            @NonNull List<DomainRequirement> domainRequirements,
+            @NonNull CredentialsMatcher credentialsMatcher) {
+        return domainCredentialsMap.entrySet().stream()
+                .filter(entry -> entry.getKey().test(domainRequirements))
+                .flatMap(entry -> entry.getValue().stream())
+                .filter(credential -> matches(credential, type, domainRequirements, credentialsMatcher))
+                .map(type::cast);
+    }
+
+    /**
+     * Tests a credential from a domain that has already been matched against the supplied requirements.
+     *
+     * @param credential         the credential.
+     * @param type               the type of credentials to match.
+     * @param domainRequirements the domain requirements.
+     * @param credentialsMatcher the credentials matcher.
+     * @return {@code true} if the credential should be included in the results of
+     * {@link #getCredentials(Map, Class, List, CredentialsMatcher)}.
+     */
+    static boolean matches(@NonNull Credentials credential,
+                           @NonNull Class<? extends Credentials> type,
+                           @NonNull List<DomainRequirement> domainRequirements,
+                           @NonNull CredentialsMatcher credentialsMatcher) {
+        if (!type.isInstance(credential)) {
+            return false;
+        }
+        // If the credentials have a native restriction that isn't imposed
+        // by the Domain, give the Credentials a chance to self-restrict
+        // themselves from being surfaced.
+        if (credential instanceof DomainRestrictedCredentials
+                && !((DomainRestrictedCredentials) credential).matches(domainRequirements)) {
+            return false;
+        }
+        return credentialsMatcher.matches(credential);
+    }
+
     /**
      * Helper method used by the {@code domainCredentials.jelly} taglib to ensure the list is valid.
      *
@@ -0,0 +1,175 @@
+package com.cloudbees.plugins.credentials.domains;
+
+import com.cloudbees.plugins.credentials.Credentials;
+import com.cloudbees.plugins.credentials.CredentialsMatcher;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+/**
+ * Collects the credentials matching many lists of requirements in a single pass over the domains. Identical lists
+ * are only evaluated once, each distinct requirement is only tested once per domain and the
+ * {@link CredentialsMatcher} is only applied once per credential.
+ *
+ * @param <C> the type of credentials.
+ * @since TODO
+ */
+final class DomainCredentialsBatch<C extends Credentials> {
+
+    /**
+     * The type of credentials.
+     */
+    @NonNull
+    private final Class<C> type;
+
+    /**
+     * The credentials matcher.
+     */
+    @NonNull
+    private final CredentialsMatcher credentialsMatcher;
+
+    /**
+     * The distinct lists of requirements.
+     */
+    @NonNull
+    private final List<List<DomainRequirement>> distinct = new ArrayList<>();
+
+    /**
+     * The index in {@link #distinct} of each of the supplied lists of requirements.
+     */
+    @NonNull
+    private final int[] slots;
+
+    /**
+     * The matching credentials of each of the distinct lists of requirements.
+     */
+    @NonNull
+    private final List<List<C>> results = new ArrayList<>();
+
+    /**
+     * Constructor.
+     *
+     * @param type               the type of credentials.
+     * @param domainRequirements the lists of requirements.
+     * @param credentialsMatcher the credentials matcher.
+     */
+    DomainCredentialsBatch(@NonNull Class<C> type, @NonNull List<List<DomainRequirement>> domainRequirements,
+                           @NonNull CredentialsMatcher credentialsMatcher) {
+        this.type = type;
+        this.credentialsMatcher = credentialsMatcher;
+        this.slots = new int[domainRequirements.size()];
+        Map<List<DomainRequirement>, Integer> seen = new HashMap<>();
+        for (int i = 0; i < slots.length; i++) {
+            List<DomainRequirement> requirements = domainRequirements.get(i);
+            Integer slot = seen.get(requirements);
+            if (slot == null) {
+                slot = distinct.size();
+                seen.put(requirements, slot);
+                distinct.add(requirements);
+                results.add(new ArrayList<>());
+            }
+            slots[i] = slot;
+        }
+    }
+
+    /**
+     * Returns the number of distinct lists of requirements.
+     *
+     * @return the number of distinct lists of requirements.
+     */
+    int size() {
+        return distinct.size();
+    }
+
+    /**
+     * Returns a distinct list of requirements.
+     *
+     * @param slot the index of the list, less than {@link #size()}.
+     * @return the list of requirements.
+     */
+    @NonNull
+    List<DomainRequirement> get(int slot) {
+        return distinct.get(slot);
+    }
+
+    /**
+     * Adds the credentials of a domain to the results of the lists of requirements that the domain matches.
+     *
+     * @param domain      the domain.
+     * @param matchesAll  {@code true} if the domain is known to match any requirements.
+     * @param candidate   whether the domain could match the distinct list of requirements with the supplied index,
+     *                    it is still tested.
+     * @param credentials the credentials of the domain.
+     */
+    void add(@NonNull Domain domain, boolean matchesAll, @NonNull IntPredicate candidate,
+             @NonNull Iterable<? extends Credentials> credentials) {
+        boolean[] matched = new boolean[distinct.size()];
+        boolean any = false;
+        Map<DomainRequirement, Boolean> accepted = new HashMap<>();
+        for (int slot = 0; slot < matched.length; slot++) {
+            matched[slot] = candidate.test(slot) && (matchesAll || accepts(domain, distinct.get(slot), accepted));
+            any |= matched[slot];
+        }
+        if (!any) {
+            return;
+        }
+        for (Credentials credential : credentials) {
+            if (!type.isInstance(credential) || !credentialsMatcher.matches(credential)) {
+                continue;
+            }
+            for (int slot = 0; slot < matched.length; slot++) {
+                // the same checks as DomainCredentials.matches, but only the domain restriction depends on the list
+                if (matched[slot] && (!(credential instanceof DomainRestrictedCredentials)
+                        || ((DomainRestrictedCredentials) credential).matches(distinct.get(slot)))) {
+                    results.get(slot).add(type.cast(credential));
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests a domain like {@link Domain#test(List)} but remembering the result of each requirement.
+     *
+     * @param domain       the domain.
+     * @param requirements the requirements.
+     * @param accepted     the results of the requirements already tested against the domain.
+     * @return {@code true} if the domain matches the requirements.
+     */
+    private static boolean accepts(@NonNull Domain domain, @NonNull List<DomainRequirement> requirements,
+                                   @NonNull Map<DomainRequirement, Boolean> accepted) {
+        for (DomainRequirement requirement : requirements) {
+            if (requirement == null) {
+                continue;
+            }
+            Boolean result = accepted.get(requirement);
+            if (result == null) {
+                result = domain.accepts(requirement);
+                accepted.put(requirement, result);
+            }
+            if (!result) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the results.
+     *
+     * @return the matching credentials of each of the supplied lists of requirements, in the same order.
+     */
+    @NonNull
+    List<List<C>> results() {
+        List<List<C>> result = new ArrayList<>(slots.length);
+        boolean[] used = new boolean[distinct.size()];
+        for (int slot : slots) {
+            // every list gets its own result that the caller may modify
+            result.add(used[slot] ? new ArrayList<>(results.get(slot)) : results.get(slot));
+            used[slot] = true;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,379 @@
+package com.cloudbees.plugins.credentials.domains;
+
+import com.cloudbees.plugins.credentials.Credentials;
+import com.cloudbees.plugins.credentials.CredentialsMatcher;
+import com.cloudbees.plugins.credentials.common.IdCredentials;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * An immutable index of a map of {@link Domain} to {@link Credentials} such as is held by the
+ * {@link com.cloudbees.plugins.credentials.CredentialsStore} implementations in this plugin.
+ * <p>
+ * The index is a point in time snapshot. Owners are expected to discard it whenever they modify the map, but as the
+ * map and its lists have always been exposed as mutable, {@link #isCurrent(Map)} can be used to detect direct
+ * modifications that added or removed domains or credentials.
+ *
+ * @since TODO
+ */
+@Restricted(NoExternalUse.class)
+public final class DomainCredentialsIndex {
+
+    /**
+     * The domains in iteration order.
+     */
+    @NonNull
+    private final Domain[] domains;
+
+    /**
+     * Whether each domain {@linkplain Domain#matchesAll() matches all requirements}, in iteration order.
+     */
+    @NonNull
+    private final boolean[] matchesAll;
+
+    /**
+     * The credentials list of each domain in iteration order.
+     */
+    @NonNull
+    private final Object[] lists;
+
+    /**
+     * The size of each credentials list when the index was built.
+     */
+    @NonNull
+    private final int[] sizes;
+
+    /**
+     * The {@link IdCredentials} by ID, usually there will only be one entry per ID but the same ID may be present in
+     * multiple domains, in which case the entries are in iteration order.
+     */
+    @NonNull
+    private final Map<String, Entry[]> byId;
+
+    /**
+     * The domains by hostname pattern.
+     */
+    @NonNull
+    private final HostnameTrie byHostname;
+
+    /**
+     * The credentials of each domain that are instances of a type, computed on first use of the type.
+     */
+    @NonNull
+    private final ConcurrentMap<Class<?>, Credentials[][]> byType = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param map the map to index.
+     */
+    private DomainCredentialsIndex(@NonNull Map<Domain, List<Credentials>> map) {
+        int count = map.size();
+        Domain[] domains = new Domain[count];
+        boolean[] matchesAll = new boolean[count];
+        Object[] lists = new Object[count];
+        int[] sizes = new int[count];
+        Map<String, Entry[]> byId = new HashMap<>();
+        int i = 0;
+        for (Map.Entry<Domain, List<Credentials>> entry : map.entrySet()) {
+            if (i == count) {
+                // concurrently modified, the result will not be current
+                break;
+            }
+            Domain domain = entry.getKey();
+            List<Credentials> list = entry.getValue();
+            domains[i] = domain;
+            matchesAll[i] = domain.matchesAll();
+            lists[i] = list;
+            sizes[i] = list.size();
+            for (Credentials credentials : list) {
+                if (credentials instanceof IdCredentials) {
+                    byId.merge(((IdCredentials) credentials).getId(),
+                            new Entry[]{new Entry(domain, matchesAll[i], credentials)},
+                            DomainCredentialsIndex::concat);
+                }
+            }
+            i++;
+        }
+        this.domains = domains;
+        this.matchesAll = matchesAll;
+        this.lists = lists;
+        this.sizes = sizes;
+        this.byId = byId;
+        this.byHostname = new HostnameTrie(domains);
+    }
+
+    /**
+     * Builds an index of the supplied map.
+     *
+     * @param map the map to index.
+     * @return the index.
+     */
+    @NonNull
+    public static DomainCredentialsIndex of(@NonNull Map<Domain, List<Credentials>> map) {
+        return new DomainCredentialsIndex(map);
+    }
+
+    /**
+     * Checks whether this index still reflects the supplied map, i.e. that it has the same domains holding the same
+     * lists of the same size.
+     *
+     * @param map the map that was indexed.
+     * @return {@code true} if the index is still current.
+     */
+    public boolean isCurrent(@NonNull Map<Domain, List<Credentials>> map) {
+        if (map.size() != domains.length) {
+            return false;
+        }
+        int i = 0;
+        for (Map.Entry<Domain, List<Credentials>> entry : map.entrySet()) {
+            if (i == domains.length
+                    || entry.getKey() != domains[i]
+                    || entry.getValue() != lists[i]
+                    || entry.getValue().size() != sizes[i]) {
+                return false;
+            }
+            i++;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the same credentials in the same order as
+     * {@link DomainCredentials#getCredentials(Map, Class, List, CredentialsMatcher)}, only testing the domains that
+     * could match the hostname of the requirements.
+     *
+     * @param type               the type of credentials.
+     * @param domainRequirements the domain requirements.
+     * @param credentialsMatcher the credentials matcher.
+     * @param <C>                the type of credentials.
+     * @return the matching credentials.
+     */
+    @NonNull
+    public <C extends Credentials> List<C> getCredentials(@NonNull Class<C> type,
+                                                          @NonNull List<DomainRequirement> domainRequirements,
+                                                          @NonNull CredentialsMatcher credentialsMatcher) {
+        List<C> result = new ArrayList<>();
+        BitSet candidates = byHostname.candidates(domainRequirements);
+        for (int i = next(candidates, 0); i >= 0; i = next(candidates, i + 1)) {
+            if (matchesAll[i] || domains[i].test(domainRequirements)) {
+                for (Credentials credential : partition(type)[i]) {
+                    if (DomainCredentials.matches(credential, type, domainRequirements, credentialsMatcher)) {
+                        result.add(type.cast(credential));
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Lazily streams the same credentials in the same order as
+     * {@link #getCredentials(Class, List, CredentialsMatcher)}.
+     *
+     * @param type               the type of credentials.
+     * @param domainRequirements the domain requirements.
+     * @param credentialsMatcher the credentials matcher.
+     * @param <C>                the type of credentials.
+     * @return the matching credentials.
+     */
+    @NonNull
+    public <C extends Credentials> Stream<C> streamCredentials(@NonNull Class<C> type,
+                                                               @NonNull List<DomainRequirement> domainRequirements,
+                                                               @NonNull CredentialsMatcher credentialsMatcher) {
+        BitSet candidates = byHostname.candidates(domainRequirements);
+        IntStream indices = candidates == null
+                ? IntStream.range(0, domains.length).filter(i -> domains[i] != null)
+                : candidates.stream();
+        return indices
+                .filter(i -> matchesAll[i] || domains[i].test(domainRequirements))
+                .boxed()
+                .flatMap(i -> Arrays.stream(partition(type)[i]))
+                .filter(credential -> DomainCredentials.matches(credential, type, domainRequirements,
+                        credentialsMatcher))
+                .map(type::cast);
+    }
+
+    /**
+     * Returns the same credentials as
+     * {@link DomainCredentials#getCredentialsForEach(Map, Class, List, CredentialsMatcher)}, only testing the domains
+     * that could match the hostname of each list of requirements.
+     *
+     * @param type               the type of credentials.
+     * @param domainRequirements the lists of domain requirements.
+     * @param credentialsMatcher the credentials matcher.
+     * @param <C>                the type of credentials.
+     * @return the matching credentials of each list of domain requirements, in the same order.
+     */
+    @NonNull
+    public <C extends Credentials> List<List<C>> getCredentialsForEach(
+            @NonNull Class<C> type,
+            @NonNull List<List<DomainRequirement>> domainRequirements,
+            @NonNull CredentialsMatcher credentialsMatcher) {
+        DomainCredentialsBatch<C> batch = new DomainCredentialsBatch<>(type, domainRequirements, credentialsMatcher);
+        BitSet[] candidates = new BitSet[batch.size()];
+        for (int slot = 0; slot < candidates.length; slot++) {
+            candidates[slot] = byHostname.candidates(batch.get(slot));
+        }
+        Credentials[][] partition = partition(type);
+        for (int i = 0; i < domains.length; i++) {
+            if (domains[i] == null) {
+                continue;
+            }
+            int index = i;
+            batch.add(domains[i], matchesAll[i],
+                    slot -> candidates[slot] == null || candidates[slot].get(index), Arrays.asList(partition[i]));
+        }
+        return batch.results();
+    }
+
+    /**
+     * Returns the index of the next domain to test.
+     *
+     * @param candidates the candidate domains or {@code null} if every domain is a candidate.
+     * @param from       the index to start from.
+     * @return the index or {@code -1} if there are no more domains.
+     */
+    private int next(@CheckForNull BitSet candidates, int from) {
+        if (candidates != null) {
+            return candidates.nextSetBit(from);
+        }
+        for (int i = from; i < domains.length; i++) {
+            if (domains[i] != null) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the credentials of each domain that are instances of the supplied type, so that typed lookups do not
+     * have to scan the credentials of other types.
+     *
+     * @param type the type of credentials.
+     * @return the credentials by domain index, in iteration order.
+     */
+    @NonNull
+    private Credentials[][] partition(@NonNull Class<?> type) {
+        Credentials[][] result = byType.get(type);
+        if (result == null) {
+            result = new Credentials[domains.length][];
+            // only walk the class hierarchy once per concrete class
+            Map<Class<?>, Boolean> instances = new HashMap<>();
+            for (int i = 0; i < domains.length; i++) {
+                List<Credentials> partition = new ArrayList<>();
+                if (domains[i] != null) {
+                    for (Credentials credentials : list(i)) {
+                        if (instances.computeIfAbsent(credentials.getClass(), type::isAssignableFrom)) {
+                            partition.add(credentials);
+                        }
+                    }
+                }
+                result[i] = partition.toArray(new Credentials[0]);
+            }
+            byType.put(type, result);
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Credentials> list(int index) {
+        return (List<Credentials>) lists[index];
+    }
+
+    /**
+     * Returns the first credentials with the specified ID that would be returned by
+     * {@link DomainCredentials#getCredentials(Map, Class, List, CredentialsMatcher)}.
+     *
+     * @param id                 the ID.
+     * @param type               the type of credentials.
+     * @param domainRequirements the domain requirements.
+     * @param credentialsMatcher the credentials matcher.
+     * @param <C>                the type of credentials.
+     * @return the matching credentials or {@code null}.
+     */
+    @CheckForNull
+    public <C extends Credentials> C getCredentialById(@NonNull String id,
+                                                       @NonNull Class<C> type,
+                                                       @NonNull List<DomainRequirement> domainRequirements,
+                                                       @NonNull CredentialsMatcher credentialsMatcher) {
+        Entry[] entries = byId.get(id);
+        if (entries == null) {
+            return null;
+        }
+        // the first match in iteration order wins, but the domains that match everything need no testing, so the
+        // first match among those bounds how many of the other domains need to be tested
+        int bound = entries.length;
+        for (int i = 0; i < entries.length; i++) {
+            if (entries[i].matchesAll
+                    && DomainCredentials.matches(entries[i].credentials, type, domainRequirements, credentialsMatcher)) {
+                bound = i;
+                break;
+            }
+        }
+        for (int i = 0; i < bound; i++) {
+            Entry entry = entries[i];
+            if (!entry.matchesAll
+                    && entry.domain.test(domainRequirements)
+                    && DomainCredentials.matches(entry.credentials, type, domainRequirements, credentialsMatcher)) {
+                return type.cast(entry.credentials);
+            }
+        }
+        return bound < entries.length ? type.cast(entries[bound].credentials) : null;
+    }
+
+    /**
+     * Returns the credentials with the specified ID in the specified domain.
+     *
+     * @param domain the domain.
+     * @param id     the ID.
+     * @return the credentials or {@code null}.
+     */
+    @CheckForNull
+    public Credentials getCredentialById(@NonNull Domain domain, @NonNull String id) {
+        Entry[] entries = byId.get(id);
+        if (entries != null) {
+            for (Entry entry : entries) {
+                if (entry.domain.equals(domain)) {
+                    return entry.credentials;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static Entry[] concat(Entry[] a, Entry[] b) {
+        Entry[] result = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+
+    /**
+     * A credentials and the domain it belongs to.
+     */
+    private static final class Entry {
+        @NonNull
+        private final Domain domain;
+        private final boolean matchesAll;
+        @NonNull
+        private final Credentials credentials;
+
+        Entry(@NonNull Domain domain, boolean matchesAll, @NonNull Credentials credentials) {
+            this.domain = domain;
+            this.matchesAll = matchesAll;
+            this.credentials = credentials;
+        }
+    }
+}
@@ -27,9 +27,6 @@ package com.cloudbees.plugins.credentials.domains;
 import edu.umd.cs.findbugs.annotations.CheckForNull;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import hudson.Extension;
-import hudson.Util;
-import org.apache.commons.io.FilenameUtils;
-import org.apache.commons.io.IOCase;
 import org.kohsuke.stapler.DataBoundConstructor;
 
 /**
@@ -58,6 +55,30 @@ public class HostnamePortSpecification extends DomainSpecification {
     @CheckForNull
     private final String excludes;
 
+    /**
+     * The compiled {@link #includes} for matching {@link HostnamePortRequirement}s.
+     */
+    @CheckForNull
+    private transient WildcardPatterns includePatterns;
+
+    /**
+     * The compiled {@link #excludes} for matching {@link HostnamePortRequirement}s.
+     */
+    @CheckForNull
+    private transient WildcardPatterns excludePatterns;
+
+    /**
+     * The compiled {@link #includes} for matching {@link HostnameRequirement}s.
+     */
+    @CheckForNull
+    private transient WildcardPatterns includeHostnamePatterns;
+
+    /**
+     * The compiled {@link #excludes} for matching {@link HostnameRequirement}s.
+     */
+    @CheckForNull
+    private transient WildcardPatterns excludeHostnamePatterns;
+
     /**
      * Constructor for stapler.
      *
@@ -73,6 +94,58 @@ public class HostnamePortSpecification extends DomainSpecification {
     public HostnamePortSpecification(@CheckForNull String includes, @CheckForNull String excludes) {
         this.includes = includes;
         this.excludes = excludes;
+        compile();
+    }
+
+    /**
+     * Compiles the patterns after deserialization.
+     *
+     * @return this instance.
+     */
+    protected Object readResolve() {
+        compile();
+        return this;
+    }
+
+    /**
+     * Returns the compiled {@link #includes} without their ports.
+     *
+     * @return the patterns or {@code null} if everything is included.
+     */
+    @CheckForNull
+    WildcardPatterns getIncludeHostnamePatterns() {
+        return includeHostnamePatterns;
+    }
+
+    /**
+     * Compiles the {@link #includes} and {@link #excludes}.
+     */
+    private void compile() {
+        includePatterns = WildcardPatterns.compile(includes, HostnamePortSpecification::withPort);
+        excludePatterns = WildcardPatterns.compile(excludes, HostnamePortSpecification::withPort);
+        includeHostnamePatterns = WildcardPatterns.compile(includes, HostnamePortSpecification::withoutPort);
+        excludeHostnamePatterns = WildcardPatterns.compile(excludes, HostnamePortSpecification::withoutPort);
+    }
+
+    /**
+     * Adds a wildcard port to a pattern that does not specify a port.
+     *
+     * @param pattern the pattern.
+     * @return the pattern with a port.
+     */
+    private static String withPort(String pattern) {
+        return pattern.indexOf(':') == -1 ? pattern + ":*" : pattern;
+    }
+
+    /**
+     * Removes the port from a pattern.
+     *
+     * @param pattern the pattern.
+     * @return the pattern without a port.
+     */
+    private static String withoutPort(String pattern) {
+        int index = pattern.indexOf(':');
+        return index == -1 ? pattern : pattern.substring(0, index);
     }
 
     /**
@@ -111,86 +184,20 @@ public class HostnamePortSpecification extends DomainSpecification {
             String hostPort =
                     ((HostnamePortRequirement) requirement).getHostname() + ":"
                             + ((HostnamePortRequirement) requirement).getPort();
-            if (includes != null) {
-                boolean isInclude = false;
-                for (String include : includes.split("[,\\n ]")) {
-                    include = Util.fixEmptyAndTrim(include);
-                    if (include == null) {
-                        continue;
-                    }
-                    if (include.indexOf(':') == -1) {
-                        include = include + ":*";
-                    }
-                    if (FilenameUtils.wildcardMatch(hostPort, include, IOCase.INSENSITIVE)) {
-                        isInclude = true;
-                        break;
-                    }
-                }
-                if (!isInclude) {
-                    return Result.NEGATIVE;
-                }
+            if (includePatterns != null && !includePatterns.matches(hostPort)) {
+                return Result.NEGATIVE;
             }
-            if (excludes != null) {
-                boolean isExclude = false;
-                for (String exclude : excludes.split("[,\\n ]")) {
-                    exclude = Util.fixEmptyAndTrim(exclude);
-                    if (exclude == null) {
-                        continue;
-                    }
-                    if (exclude.indexOf(':') == -1) {
-                        exclude = exclude + ":*";
-                    }
-                    if (FilenameUtils.wildcardMatch(hostPort, exclude, IOCase.INSENSITIVE)) {
-                        isExclude = true;
-                        break;
-                    }
-                }
-                if (isExclude) {
-                    return Result.NEGATIVE;
-                }
+            if (excludePatterns != null && excludePatterns.matches(hostPort)) {
+                return Result.NEGATIVE;
             }
         } else if (requirement instanceof HostnameRequirement) {
             // if the requirement is only for a hostname we can still match some of the spec.
             String hostname = ((HostnameRequirement) requirement).getHostname();
-            if (includes != null) {
-                boolean isInclude = false;
-                for (String include : includes.split("[,\\n ]")) {
-                    include = Util.fixEmptyAndTrim(include);
-                    if (include == null) {
-                        continue;
-                    }
-                    int index = include.indexOf(":");
-                    if (index != -1) {
-                        include = include.substring(0, index);
-                    }
-                    if (FilenameUtils.wildcardMatch(hostname, include, IOCase.INSENSITIVE)) {
-                        isInclude = true;
-                        break;
-                    }
-                }
-                if (!isInclude) {
-                    return Result.NEGATIVE;
-                }
+            if (includeHostnamePatterns != null && !includeHostnamePatterns.matches(hostname)) {
+                return Result.NEGATIVE;
             }
-            if (excludes != null) {
-                boolean isExclude = false;
-                for (String exclude : excludes.split("[,\\n ]")) {
-                    exclude = Util.fixEmptyAndTrim(exclude);
-                    if (exclude == null) {
-                        continue;
-                    }
-                    int index = exclude.indexOf(":");
-                    if (index != -1) {
-                        exclude = exclude.substring(0, index);
-                    }
-                    if (FilenameUtils.wildcardMatch(hostname, exclude, IOCase.INSENSITIVE)) {
-                        isExclude = true;
-                        break;
-                    }
-                }
-                if (isExclude) {
-                    return Result.NEGATIVE;
-                }
+            if (excludeHostnamePatterns != null && excludeHostnamePatterns.matches(hostname)) {
+                return Result.NEGATIVE;
             }
         }
         return Result.UNKNOWN;
@@ -25,6 +25,7 @@
 package com.cloudbees.plugins.credentials.domains;
 
 import edu.umd.cs.findbugs.annotations.CheckForNull;
+import java.util.Objects;
 
 /**
  * A requirement for a {@link Domain} that includes {@link com.cloudbees.plugins.credentials.Credentials} for a
@@ -64,4 +65,27 @@ public class HostnameRequirement extends DomainRequirement {
     public String getHostname() {
         return hostname;
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        HostnameRequirement that = (HostnameRequirement) o;
+        return Objects.equals(hostname, that.hostname);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(hostname);
+    }
 }
@@ -27,9 +27,7 @@ package com.cloudbees.plugins.credentials.domains;
 import edu.umd.cs.findbugs.annotations.CheckForNull;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import hudson.Extension;
-import hudson.Util;
-import org.apache.commons.io.FilenameUtils;
-import org.apache.commons.io.IOCase;
+import java.util.function.UnaryOperator;
 import org.kohsuke.stapler.DataBoundConstructor;
 
 /**
@@ -58,6 +56,18 @@ public class HostnameSpecification extends DomainSpecification {
     @CheckForNull
     private final String excludes;
 
+    /**
+     * The compiled {@link #includes}.
+     */
+    @CheckForNull
+    private transient WildcardPatterns includePatterns;
+
+    /**
+     * The compiled {@link #excludes}.
+     */
+    @CheckForNull
+    private transient WildcardPatterns excludePatterns;
+
     /**
      * Constructor for stapler.
      *
@@ -73,6 +83,35 @@ public class HostnameSpecification extends DomainSpecification {
     public HostnameSpecification(@CheckForNull String includes, @CheckForNull String excludes) {
         this.includes = includes;
         this.excludes = excludes;
+        compile();
+    }
+
+    /**
+     * Compiles the patterns after deserialization.
+     *
+     * @return this instance.
+     */
+    protected Object readResolve() {
+        compile();
+        return this;
+    }
+
+    /**
+     * Returns the compiled {@link #includes}.
+     *
+     * @return the patterns or {@code null} if everything is included.
+     */
+    @CheckForNull
+    WildcardPatterns getIncludePatterns() {
+        return includePatterns;
+    }
+
+    /**
+     * Compiles the {@link #includes} and {@link #excludes}.
+     */
+    private void compile() {
+        includePatterns = WildcardPatterns.compile(includes, UnaryOperator.identity());
+        excludePatterns = WildcardPatterns.compile(excludes, UnaryOperator.identity());
     }
 
     /**
@@ -109,37 +148,11 @@ public class HostnameSpecification extends DomainSpecification {
     public Result test(@NonNull DomainRequirement requirement) {
         if (requirement instanceof HostnameRequirement) {
             String hostname = ((HostnameRequirement) requirement).getHostname();
-            if (includes != null) {
-                boolean isInclude = false;
-                for (String include : includes.split("[,\\n ]")) {
-                    include = Util.fixEmptyAndTrim(include);
-                    if (include == null) {
-                        continue;
-                    }
-                    if (FilenameUtils.wildcardMatch(hostname, include, IOCase.INSENSITIVE)) {
-                        isInclude = true;
-                        break;
-                    }
-                }
-                if (!isInclude) {
-                    return Result.NEGATIVE;
-                }
+            if (includePatterns != null && !includePatterns.matches(hostname)) {
+                return Result.NEGATIVE;
             }
-            if (excludes != null) {
-                boolean isExclude = false;
-                for (String exclude : excludes.split("[,\\n ]")) {
-                    exclude = Util.fixEmptyAndTrim(exclude);
-                    if (exclude == null) {
-                        continue;
-                    }
-                    if (FilenameUtils.wildcardMatch(hostname, exclude, IOCase.INSENSITIVE)) {
-                        isExclude = true;
-                        break;
-                    }
-                }
-                if (isExclude) {
-                    return Result.NEGATIVE;
-                }
+            if (excludePatterns != null && excludePatterns.matches(hostname)) {
+                return Result.NEGATIVE;
             }
             return Result.PARTIAL;
         }
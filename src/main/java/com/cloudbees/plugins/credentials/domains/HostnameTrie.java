@@ -0,0 +1,200 @@
+package com.cloudbees.plugins.credentials.domains;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Selects the {@link Domain}s that could match a {@link HostnameRequirement} without testing all of them. The include
+ * patterns of the {@link HostnameSpecification}s and {@link HostnamePortSpecification}s are stored in a trie keyed
+ * by their labels in reverse order ({@code *.git.corp.example} is stored under {@code example}, {@code corp},
+ * {@code git}) stopping at the first label with a wildcard, so that a hostname only needs to walk its own labels to
+ * collect the candidates.
+ * <p>
+ * The candidates are a superset of the matching domains, they still need to be {@linkplain Domain#test(List) tested}.
+ * Domains that have no hostname includes, or that have specifications other than the ones provided by this plugin
+ * (which could return {@link DomainSpecification.Result#POSITIVE} for a hostname) are always candidates.
+ *
+ * @since TODO
+ */
+final class HostnameTrie {
+
+    /**
+     * An empty array of domain indices.
+     */
+    private static final int[] NONE = new int[0];
+
+    /**
+     * The root of the trie.
+     */
+    @NonNull
+    private final Node root = new Node();
+
+    /**
+     * The domains that are always candidates.
+     */
+    @NonNull
+    private final BitSet unindexed = new BitSet();
+
+    /**
+     * Constructor.
+     *
+     * @param domains the domains, in iteration order, which may contain {@code null} entries that will never be
+     *                candidates.
+     */
+    HostnameTrie(@NonNull Domain[] domains) {
+        for (int i = 0; i < domains.length; i++) {
+            if (domains[i] == null) {
+                continue;
+            }
+            Collection<String> patterns = hostnamePatterns(domains[i]);
+            if (patterns == null) {
+                unindexed.set(i);
+            } else {
+                for (String pattern : patterns) {
+                    add(pattern, i);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the hostname include patterns that every hostname matching the domain must match.
+     *
+     * @param domain the domain.
+     * @return the patterns in lower case or {@code null} if the domain cannot be indexed.
+     */
+    @CheckForNull
+    private static Collection<String> hostnamePatterns(@NonNull Domain domain) {
+        Collection<String> result = null;
+        for (DomainSpecification specification : domain.getSpecifications()) {
+            Class<? extends DomainSpecification> clazz = specification.getClass();
+            WildcardPatterns patterns;
+            if (clazz == HostnameSpecification.class) {
+                patterns = ((HostnameSpecification) specification).getIncludePatterns();
+            } else if (clazz == HostnamePortSpecification.class) {
+                patterns = ((HostnamePortSpecification) specification).getIncludeHostnamePatterns();
+            } else if (clazz == SchemeSpecification.class || clazz == PathSpecification.class) {
+                continue;
+            } else {
+                return null;
+            }
+            if (patterns != null && result == null) {
+                result = patterns.getPatterns();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Adds a pattern to the trie.
+     *
+     * @param pattern the pattern in lower case.
+     * @param domain  the index of the domain.
+     */
+    private void add(@NonNull String pattern, int domain) {
+        Node node = root;
+        int end = pattern.length();
+        while (true) {
+            int start = pattern.lastIndexOf('.', end - 1) + 1;
+            String label = pattern.substring(start, end);
+            if (label.indexOf('*') != -1 || label.indexOf('?') != -1) {
+                // a wildcard can match any number of labels, so anything below this node is a candidate
+                node.wildcard = append(node.wildcard, domain);
+                return;
+            }
+            node = node.children.computeIfAbsent(label, k -> new Node());
+            if (start == 0) {
+                node.exact = append(node.exact, domain);
+                return;
+            }
+            end = start - 1;
+        }
+    }
+
+    /**
+     * Returns the domains that could match the supplied requirements.
+     *
+     * @param domainRequirements the requirements.
+     * @return the indices of the candidate domains or {@code null} if every domain is a candidate.
+     */
+    @CheckForNull
+    BitSet candidates(@NonNull List<DomainRequirement> domainRequirements) {
+        for (DomainRequirement requirement : domainRequirements) {
+            if (requirement instanceof HostnameRequirement) {
+                String hostname = ((HostnameRequirement) requirement).getHostname();
+                if (hostname != null && hostname.indexOf(':') == -1) {
+                    // with a colon in the hostname (IPv6) a host:port pattern may split in unexpected places
+                    return candidates(hostname.toLowerCase(Locale.ENGLISH));
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the domains that could match the supplied hostname.
+     *
+     * @param hostname the hostname in lower case.
+     * @return the indices of the candidate domains.
+     */
+    @NonNull
+    private BitSet candidates(@NonNull String hostname) {
+        BitSet result = (BitSet) unindexed.clone();
+        Node node = root;
+        int end = hostname.length();
+        while (true) {
+            set(result, node.wildcard);
+            int start = hostname.lastIndexOf('.', end - 1) + 1;
+            node = node.children.get(hostname.substring(start, end));
+            if (node == null) {
+                return result;
+            }
+            if (start == 0) {
+                set(result, node.wildcard);
+                set(result, node.exact);
+                return result;
+            }
+            end = start - 1;
+        }
+    }
+
+    private static void set(BitSet bits, int[] indices) {
+        for (int index : indices) {
+            bits.set(index);
+        }
+    }
+
+    private static int[] append(int[] indices, int index) {
+        if (indices.length > 0 && indices[indices.length - 1] == index) {
+            return indices;
+        }
+        int[] result = Arrays.copyOf(indices, indices.length + 1);
+        result[indices.length] = index;
+        return result;
+    }
+
+    /**
+     * A node of the trie.
+     */
+    private static final class Node {
+        /**
+         * The child nodes by label.
+         */
+        private final Map<String, Node> children = new HashMap<>();
+        /**
+         * The domains with a pattern that ends at this node.
+         */
+        private int[] exact = NONE;
+        /**
+         * The domains with a pattern that has a wildcard in the label following this node.
+         */
+        private int[] wildcard = NONE;
+    }
+}
@@ -64,4 +64,27 @@ public class PathRequirement extends DomainRequirement {
     public String getPath() {
         return path;
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        PathRequirement that = (PathRequirement) o;
+        return path.equals(that.path);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+        return path.hashCode();
+    }
 }
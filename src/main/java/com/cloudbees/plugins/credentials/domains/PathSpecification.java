@@ -28,7 +28,10 @@ import edu.umd.cs.findbugs.annotations.CheckForNull;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import hudson.Extension;
 import hudson.Util;
-import org.apache.commons.lang3.StringUtils;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import org.kohsuke.stapler.DataBoundConstructor;
 import org.springframework.util.AntPathMatcher;
 
@@ -60,6 +63,18 @@ public class PathSpecification extends DomainSpecification {
      */
     private final boolean caseSensitive;
 
+    /**
+     * The compiled {@link #includes}.
+     */
+    @CheckForNull
+    private transient Patterns includePatterns;
+
+    /**
+     * The compiled {@link #excludes}.
+     */
+    @CheckForNull
+    private transient Patterns excludePatterns;
+
     /**
      * Constructor for stapler.
      *
@@ -77,6 +92,25 @@ public class PathSpecification extends DomainSpecification {
         this.includes = includes;
         this.excludes = excludes;
         this.caseSensitive = caseSensitive;
+        compile();
+    }
+
+    /**
+     * Compiles the patterns after deserialization.
+     *
+     * @return this instance.
+     */
+    protected Object readResolve() {
+        compile();
+        return this;
+    }
+
+    /**
+     * Compiles the {@link #includes} and {@link #excludes}.
+     */
+    private void compile() {
+        includePatterns = Patterns.compile(includes, caseSensitive);
+        excludePatterns = Patterns.compile(excludes, caseSensitive);
     }
 
     /**
@@ -116,52 +150,105 @@ public class PathSpecification extends DomainSpecification {
     @Override
     public Result test(@NonNull DomainRequirement requirement) {
         if (requirement instanceof PathRequirement) {
-            final AntPathMatcher matcher = new AntPathMatcher();
             String path = ((PathRequirement) requirement).getPath();
             if (!caseSensitive) {
                 path = path.toLowerCase();
             }
-            if (includes != null) {
-                boolean isInclude = false;
-                for (String include : includes.split(",")) {
-                    include = Util.fixEmptyAndTrim(include);
-                    if (include == null) {
-                        continue;
-                    }
-                    if (!caseSensitive) {
-                        include = include.toLowerCase();
-                    }
-                    if (matcher.isPattern(include) ? matcher.match(include, path) : StringUtils.equals(include, path)) {
-                        isInclude = true;
-                        break;
-                    }
+            if (includePatterns != null && !includePatterns.matches(path)) {
+                return Result.NEGATIVE;
+            }
+            if (excludePatterns != null && excludePatterns.matches(path)) {
+                return Result.NEGATIVE;
+            }
+            return Result.PARTIAL;
+        }
+        return Result.UNKNOWN;
+    }
+
+    /**
+     * A compiled list of comma separated Ant style path patterns.
+     */
+    private static final class Patterns {
+
+        /**
+         * Shared as it is thread safe and caches the tokenized patterns.
+         */
+        private static final AntPathMatcher MATCHER = new AntPathMatcher();
+
+        /**
+         * The patterns without wildcards.
+         */
+        @NonNull
+        private final Set<String> literals;
+
+        /**
+         * The patterns with wildcards.
+         */
+        @NonNull
+        private final String[] wildcards;
+
+        /**
+         * Constructor.
+         *
+         * @param literals  the patterns without wildcards.
+         * @param wildcards the patterns with wildcards.
+         */
+        private Patterns(@NonNull Set<String> literals, @NonNull String[] wildcards) {
+            this.literals = literals;
+            this.wildcards = wildcards;
+        }
+
+        /**
+         * Compiles a comma separated list of patterns.
+         *
+         * @param patterns      the list of patterns.
+         * @param caseSensitive {@code false} to convert the patterns to lower case.
+         * @return the compiled patterns or {@code null} if the list was {@code null}.
+         */
+        @CheckForNull
+        static Patterns compile(@CheckForNull String patterns, boolean caseSensitive) {
+            if (patterns == null) {
+                return null;
+            }
+            Set<String> literals = new HashSet<>();
+            List<String> wildcards = new ArrayList<>();
+            for (String pattern : patterns.split(",")) {
+                pattern = Util.fixEmptyAndTrim(pattern);
+                if (pattern == null) {
+                    continue;
                 }
-                if (!isInclude) {
-                    return Result.NEGATIVE;
+                if (!caseSensitive) {
+                    pattern = pattern.toLowerCase();
                 }
-            }
-            if (excludes != null) {
-                boolean isExclude = false;
-                for (String exclude : excludes.split(",")) {
-                    exclude = Util.fixEmptyAndTrim(exclude);
-                    if (exclude == null) {
-                        continue;
-                    }
-                    if (!caseSensitive) {
-                        exclude = exclude.toLowerCase();
-                    }
-                    if (matcher.isPattern(exclude) ? matcher.match(exclude, path) : StringUtils.equals(exclude, path)) {
-                        isExclude = true;
-                        break;
-                    }
+                if (MATCHER.isPattern(pattern)) {
+                    wildcards.add(pattern);
+                } else {
+                    literals.add(pattern);
                 }
-                if (isExclude) {
-                    return Result.NEGATIVE;
+            }
+            return new Patterns(Set.copyOf(literals), wildcards.toArray(new String[0]));
+        }
+
+        /**
+         * Checks whether the path matches any of the patterns.
+         *
+         * @param path the path, in lower case if the patterns are not case sensitive.
+         * @return {@code true} if the path matches any of the patterns.
+         */
+        boolean matches(@CheckForNull String path) {
+            if (path == null) {
+                return false;
+            }
+            if (literals.contains(path)) {
+                return true;
+            }
+            for (String wildcard : wildcards) {
+                if (MATCHER.match(wildcard, path)) {
+                    return true;
                 }
             }
-            return Result.PARTIAL;
+            return false;
         }
-        return Result.UNKNOWN;
     }
 
     /**
@@ -65,4 +65,27 @@ public class SchemeRequirement extends DomainRequirement {
     public String getScheme() {
         return scheme;
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        SchemeRequirement that = (SchemeRequirement) o;
+        return scheme.equals(that.scheme);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+        return scheme.hashCode();
+    }
 }
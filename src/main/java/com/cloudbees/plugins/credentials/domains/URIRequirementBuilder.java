@@ -30,7 +30,11 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
 
 /**
  * A builder to help creating requirements from URIs.
@@ -38,6 +42,28 @@ import java.util.List;
  * @since 1.6
  */
 public class URIRequirementBuilder {
+    /**
+     * The maximum number of parsed URIs to remember, {@code 0} or less disables the cache.
+     */
+    @Restricted(NoExternalUse.class)
+    /* package-protected */ static /* not final */ int CACHE_SIZE =
+            Integer.getInteger(URIRequirementBuilder.class.getName() + ".cacheSize", 1024);
+
+    /**
+     * Marks a URI that could not be parsed.
+     */
+    private static final List<DomainRequirement> INVALID = Collections.unmodifiableList(new ArrayList<>());
+
+    /**
+     * The requirements of the most recently used URIs, guarded by itself.
+     */
+    private static final Map<String, List<DomainRequirement>> CACHE = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, List<DomainRequirement>> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
     /**
      * The list of requirements.
      */
@@ -93,18 +119,72 @@ public class URIRequirementBuilder {
     @NonNull
     public URIRequirementBuilder withUri(@CheckForNull String uri) {
         if (uri != null) {
-            try {
-                URI u = new URI(uri);
-                withScheme(u.getScheme());
-                withHostnamePort(u.getHost(), u.getPort());
-                withPath(u.getRawPath());
-            } catch (URISyntaxException e) {
+            List<DomainRequirement> parsed = parse(uri);
+            if (parsed == INVALID) {
                 withoutScheme().withoutHostname().withoutHostnamePort();
+            } else {
+                // same order as withScheme, withHostnamePort and withPath would give, the requirements are immutable
+                withoutScheme().withoutHostname().withoutPath();
+                requirements.addAll(parsed);
             }
         }
         return this;
     }
 
+    /**
+     * Returns the requirements of the supplied URI, remembering the most recently used ones.
+     *
+     * @param uri the URI.
+     * @return the immutable list of requirements or {@link #INVALID} if the URI could not be parsed.
+     */
+    @NonNull
+    private static List<DomainRequirement> parse(@NonNull String uri) {
+        if (CACHE_SIZE <= 0) {
+            return doParse(uri);
+        }
+        List<DomainRequirement> result;
+        synchronized (CACHE) {
+            result = CACHE.get(uri);
+        }
+        if (result == null) {
+            result = doParse(uri);
+            synchronized (CACHE) {
+                CACHE.put(uri, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Parses the requirements of the supplied URI.
+     *
+     * @param uri the URI.
+     * @return the immutable list of requirements or {@link #INVALID} if the URI could not be parsed.
+     */
+    @NonNull
+    private static List<DomainRequirement> doParse(@NonNull String uri) {
+        URI u;
+        try {
+            u = new URI(uri);
+        } catch (URISyntaxException e) {
+            return INVALID;
+        }
+        List<DomainRequirement> result = new ArrayList<>(4);
+        if (u.getScheme() != null) {
+            result.add(new SchemeRequirement(u.getScheme()));
+        }
+        if (u.getHost() != null) {
+            result.add(new HostnameRequirement(u.getHost()));
+            if (u.getPort() != -1) {
+                result.add(new HostnamePortRequirement(u.getHost(), u.getPort()));
+            }
+        }
+        if (u.getRawPath() != null) {
+            result.add(new PathRequirement(u.getRawPath()));
+        }
+        return Collections.unmodifiableList(result);
+    }
+
     /**
      * Removes any scheme requirements.
      *
@@ -0,0 +1,252 @@
+package com.cloudbees.plugins.credentials.domains;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Util;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.UnaryOperator;
+
+/**
+ * A compiled, immutable, list of case insensitive patterns with {@code *} and {@code ?} wildcards, such as the
+ * {@link HostnameSpecification#getIncludes()}, that can be tested without re-parsing the list every time. Patterns
+ * without wildcards are looked up in a hash set, the others are matched in order by {@link Glob}s that are shared
+ * between all the specifications using the same pattern.
+ *
+ * @since TODO
+ */
+final class WildcardPatterns {
+
+    /**
+     * The maximum number of shared {@link Glob}s.
+     */
+    private static final int MAX_GLOBS = 4096;
+
+    /**
+     * The shared {@link Glob}s by pattern.
+     */
+    private static final ConcurrentMap<String, Glob> GLOBS = new ConcurrentHashMap<>();
+
+    /**
+     * The patterns without wildcards, in lower case.
+     */
+    @NonNull
+    private final Set<String> literals;
+
+    /**
+     * The patterns with wildcards, in lower case.
+     */
+    @NonNull
+    private final Glob[] wildcards;
+
+    /**
+     * Constructor.
+     *
+     * @param patterns the patterns in lower case.
+     */
+    private WildcardPatterns(@NonNull List<String> patterns) {
+        Set<String> literals = new HashSet<>();
+        List<Glob> wildcards = new ArrayList<>();
+        for (String pattern : patterns) {
+            if (pattern.indexOf('*') == -1 && pattern.indexOf('?') == -1) {
+                literals.add(pattern);
+            } else {
+                wildcards.add(Glob.of(pattern));
+            }
+        }
+        this.literals = Set.copyOf(literals);
+        this.wildcards = wildcards.toArray(new Glob[0]);
+    }
+
+    /**
+     * Compiles a comma, space or newline separated list of patterns.
+     *
+     * @param patterns   the list of patterns.
+     * @param normalizer applied to each pattern before it is compiled.
+     * @return the compiled patterns or {@code null} if the list was {@code null}.
+     */
+    @CheckForNull
+    static WildcardPatterns compile(@CheckForNull String patterns, @NonNull UnaryOperator<String> normalizer) {
+        if (patterns == null) {
+            return null;
+        }
+        List<String> result = new ArrayList<>();
+        for (String pattern : patterns.split("[,\\n ]")) {
+            pattern = Util.fixEmptyAndTrim(pattern);
+            if (pattern != null) {
+                result.add(normalizer.apply(pattern).toLowerCase(Locale.ENGLISH));
+            }
+        }
+        return new WildcardPatterns(result);
+    }
+
+    /**
+     * Returns all the patterns.
+     *
+     * @return the patterns in lower case.
+     */
+    @NonNull
+    List<String> getPatterns() {
+        List<String> result = new ArrayList<>(literals);
+        for (Glob wildcard : wildcards) {
+            result.add(wildcard.pattern);
+        }
+        return result;
+    }
+
+    /**
+     * Checks whether the value matches any of the patterns, ignoring case.
+     *
+     * @param value the value.
+     * @return {@code true} if the value matches any of the patterns.
+     */
+    boolean matches(@CheckForNull String value) {
+        if (value == null) {
+            return false;
+        }
+        // returns the same instance when already in lower case, which is the usual case for hostnames
+        String lowerCase = value.toLowerCase(Locale.ENGLISH);
+        if (literals.contains(lowerCase)) {
+            return true;
+        }
+        for (Glob wildcard : wildcards) {
+            if (wildcard.matches(lowerCase)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Matches a value against a pattern where {@code ?} matches any single character and {@code *} matches any
+     * number of characters, like {@link org.apache.commons.io.FilenameUtils#wildcardMatch(String, String)}.
+     *
+     * @param value   the value.
+     * @param pattern the pattern.
+     * @return {@code true} if the value matches the pattern.
+     */
+    static boolean wildcardMatch(@NonNull String value, @NonNull String pattern) {
+        int v = 0;
+        int p = 0;
+        int star = -1;
+        int backtrack = 0;
+        while (v < value.length()) {
+            if (p < pattern.length() && (pattern.charAt(p) == '?' || pattern.charAt(p) == value.charAt(v))) {
+                v++;
+                p++;
+            } else if (p < pattern.length() && pattern.charAt(p) == '*') {
+                star = p++;
+                backtrack = v;
+            } else if (star != -1) {
+                // let the last star absorb one more character and retry
+                p = star + 1;
+                v = ++backtrack;
+            } else {
+                return false;
+            }
+        }
+        while (p < pattern.length() && pattern.charAt(p) == '*') {
+            p++;
+        }
+        return p == pattern.length();
+    }
+
+    /**
+     * A compiled wildcard pattern. Patterns that only use {@code *} are split into the literal segments between the
+     * stars, so that matching is a prefix check, a suffix check and a left to right search for the other segments.
+     */
+    static final class Glob {
+
+        /**
+         * The pattern.
+         */
+        @NonNull
+        private final String pattern;
+
+        /**
+         * The literal segments between the {@code *}s or {@code null} if the pattern uses {@code ?}.
+         */
+        @CheckForNull
+        private final String[] segments;
+
+        /**
+         * The minimum length of a matching value.
+         */
+        private final int minLength;
+
+        /**
+         * Constructor.
+         *
+         * @param pattern the pattern.
+         */
+        private Glob(@NonNull String pattern) {
+            this.pattern = pattern;
+            if (pattern.indexOf('?') == -1) {
+                this.segments = pattern.split("\\*", -1);
+                this.minLength = pattern.length() - (segments.length - 1);
+            } else {
+                this.segments = null;
+                this.minLength = 0;
+            }
+        }
+
+        /**
+         * Returns the shared compiled form of a pattern.
+         *
+         * @param pattern the pattern.
+         * @return the compiled pattern.
+         */
+        @NonNull
+        static Glob of(@NonNull String pattern) {
+            Glob result = GLOBS.get(pattern);
+            if (result == null) {
+                if (GLOBS.size() >= MAX_GLOBS) {
+                    // patterns are configuration, so the cache only fills up if they keep changing
+                    GLOBS.clear();
+                }
+                result = GLOBS.computeIfAbsent(pattern, Glob::new);
+            }
+            return result;
+        }
+
+        /**
+         * Checks whether the value matches the pattern.
+         *
+         * @param value the value in the same case as the pattern.
+         * @return {@code true} if the value matches the pattern.
+         */
+        boolean matches(@NonNull String value) {
+            if (segments == null) {
+                return wildcardMatch(value, pattern);
+            }
+            if (segments.length == 1) {
+                return value.equals(pattern);
+            }
+            String first = segments[0];
+            String last = segments[segments.length - 1];
+            if (value.length() < minLength || !value.startsWith(first) || !value.endsWith(last)) {
+                return false;
+            }
+            int from = first.length();
+            int to = value.length() - last.length();
+            for (int i = 1; i < segments.length - 1; i++) {
+                String segment = segments[i];
+                if (segment.isEmpty()) {
+                    continue;
+                }
+                // the leftmost occurrence leaves the most room for the remaining segments
+                int index = value.indexOf(segment, from);
+                if (index == -1 || index + segment.length() > to) {
+                    return false;
+                }
+                from = index + segment.length();
+            }
+            return true;
+        }
+    }
+}
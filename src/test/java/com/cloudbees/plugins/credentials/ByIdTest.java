@@ -122,6 +122,45 @@ final class ByIdTest {
         assertEquals(1, lp3.listCalls, "LazyProvider3.getCredentialsInItemGroup should be called once");
     }
 
+    @Test void streamStopsAtFirstMatch(JenkinsRule r) throws Exception {
+        setUp();
+        SystemCredentialsProvider.getInstance().getCredentials().add(new UsernamePasswordCredentialsImpl(CredentialsScope.GLOBAL, "early-cred", null, "user", "pass"));
+        var result = CredentialsProvider.streamCredentialsInItemGroup(IdCredentials.class, null, null, null).findFirst();
+        assertThat(result.map(IdCredentials::getId).orElse(null), is("early-cred"));
+        assertEquals(0, lp2.listCalls, "LazyProvider2.getCredentialsInItemGroup should not be called");
+        assertEquals(0, lp3.listCalls, "LazyProvider3.getCredentialsInItemGroup should not be called");
+    }
+
+    @Test void streamMatchesLookup(JenkinsRule r) throws Exception {
+        setUp();
+        // a duplicate ID from a later provider is hidden by the earlier one
+        lp3.credentials.add(new UsernamePasswordCredentialsImpl(CredentialsScope.GLOBAL, "lazy2-cred", "duplicate", "user", "pass"));
+        var streamed = CredentialsProvider.streamCredentialsInItemGroup(IdCredentials.class, null, null, null).toList();
+        assertThat(streamed, is(CredentialsProvider.lookupCredentialsInItemGroup(IdCredentials.class, null, null, null)));
+        assertThat(streamed.stream().map(IdCredentials::getId).toList(), is(List.of("lazy2-cred", "lazy3-cred")));
+    }
+
+    @Test void parallelLookupMatchesSequentialLookup(JenkinsRule r) throws Exception {
+        setUp();
+        SystemCredentialsProvider.getInstance().getCredentials().add(new UsernamePasswordCredentialsImpl(CredentialsScope.GLOBAL, "early-cred", null, "user", "pass"));
+        lp3.credentials.add(new UsernamePasswordCredentialsImpl(CredentialsScope.GLOBAL, "lazy2-cred", "duplicate", "user", "pass"));
+        var sequential = CredentialsProvider.lookupCredentialsInItemGroup(IdCredentials.class, null, null, null);
+        boolean enabled = ParallelCredentialsLookup.ENABLED;
+        long timeoutMillis = ParallelCredentialsLookup.TIMEOUT_MILLIS;
+        ParallelCredentialsLookup.ENABLED = true;
+        try {
+            var parallel = CredentialsProvider.lookupCredentialsInItemGroup(IdCredentials.class, null, null, null);
+            assertThat(parallel, is(sequential));
+            assertThat(parallel.stream().map(IdCredentials::getId).toList(), is(List.of("early-cred", "lazy2-cred", "lazy3-cred")));
+            // providers that do not answer in time are queried again rather than skipped
+            ParallelCredentialsLookup.TIMEOUT_MILLIS = 0;
+            assertThat(CredentialsProvider.lookupCredentialsInItemGroup(IdCredentials.class, null, null, null), is(sequential));
+        } finally {
+            ParallelCredentialsLookup.ENABLED = enabled;
+            ParallelCredentialsLookup.TIMEOUT_MILLIS = timeoutMillis;
+        }
+    }
+
     @TestExtension public static final class LazyProvider1 extends CredentialsProvider {
         // @TestExtension lacks ordinal, and CredentialsProvider.getDisplayName uses Class.simpleName,
         // so to sort CredentialsProvider.all we must use a special nested class name or override this:
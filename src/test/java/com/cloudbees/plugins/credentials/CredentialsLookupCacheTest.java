@@ -0,0 +1,137 @@
+package com.cloudbees.plugins.credentials;
+
+import com.cloudbees.plugins.credentials.common.IdCredentials;
+import com.cloudbees.plugins.credentials.common.StandardUsernamePasswordCredentials;
+import com.cloudbees.plugins.credentials.domains.Domain;
+import com.cloudbees.plugins.credentials.domains.DomainRequirement;
+import com.cloudbees.plugins.credentials.impl.UsernamePasswordCredentialsImpl;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.ExtensionList;
+import hudson.model.ItemGroup;
+import hudson.security.ACL;
+import java.util.Collections;
+import java.util.List;
+import jenkins.model.Jenkins;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.TestExtension;
+import org.jvnet.hudson.test.junit.jupiter.WithJenkins;
+import org.springframework.security.core.Authentication;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+@WithJenkins
+class CredentialsLookupCacheTest {
+
+    private int maxSize;
+    private int missingMaxSize;
+
+    @BeforeEach
+    void enableCache() {
+        maxSize = CredentialsLookupCache.MAX_SIZE;
+        missingMaxSize = CredentialsLookupCache.MISSING_MAX_SIZE;
+        CredentialsLookupCache.MAX_SIZE = 100;
+        CredentialsLookupCache.MISSING_MAX_SIZE = 100;
+    }
+
+    @AfterEach
+    void restoreCache() {
+        CredentialsLookupCache.MAX_SIZE = maxSize;
+        CredentialsLookupCache.MISSING_MAX_SIZE = missingMaxSize;
+    }
+
+    @Test
+    void storeMutationsInvalidateCachedLookups(JenkinsRule r) throws Exception {
+        assertThat(lookup(), is(empty()));
+        CredentialsStore store = CredentialsProvider.lookupStores(r.jenkins).iterator().next();
+        UsernamePasswordCredentialsImpl first =
+                new UsernamePasswordCredentialsImpl(CredentialsScope.GLOBAL, "first", null, "bob", "s3cr3t");
+        store.addCredentials(Domain.global(), first);
+        assertThat(lookup(), contains(first));
+        UsernamePasswordCredentialsImpl replacement =
+                new UsernamePasswordCredentialsImpl(CredentialsScope.GLOBAL, "first", "updated", "bob", "s3cr3t");
+        store.updateCredentials(Domain.global(), first, replacement);
+        assertThat(lookup().get(0).getDescription(), is("updated"));
+        store.removeCredentials(Domain.global(), replacement);
+        assertThat(lookup(), is(empty()));
+    }
+
+    @Test
+    void cachedLookupsReturnIndependentLists(JenkinsRule r) throws Exception {
+        CredentialsProvider.lookupStores(r.jenkins).iterator().next().addCredentials(Domain.global(),
+                new UsernamePasswordCredentialsImpl(CredentialsScope.GLOBAL, "id", null, "bob", "s3cr3t"));
+        List<StandardUsernamePasswordCredentials> first = lookup();
+        List<StandardUsernamePasswordCredentials> second = lookup();
+        assertThat(second, is(first));
+        assertThat(second, not(sameInstance(first)));
+        first.clear();
+        assertThat(lookup(), is(second));
+    }
+
+    @Test
+    void missingCredentialsAreFoundOnceAdded(JenkinsRule r) throws Exception {
+        assertThat(findById("late"), is(nullValue()));
+        assertThat(findById("late"), is(nullValue()));
+        UsernamePasswordCredentialsImpl late =
+                new UsernamePasswordCredentialsImpl(CredentialsScope.GLOBAL, "late", null, "bob", "s3cr3t");
+        CredentialsProvider.lookupStores(r.jenkins).iterator().next().addCredentials(Domain.global(), late);
+        assertThat(findById("late"), is(late));
+    }
+
+    @Test
+    void missingCredentialsAreRememberedUntilTheStoreChanges(JenkinsRule r) throws Exception {
+        CountingProvider counting = ExtensionList.lookupSingleton(CountingProvider.class);
+        assertThat(findById("late"), is(nullValue()));
+        assertThat(counting.getByIdCalls, is(1));
+        assertThat(findById("late"), is(nullValue()));
+        assertThat(counting.getByIdCalls, is(1));
+        CredentialsProvider.lookupStores(r.jenkins).iterator().next().addCredentials(Domain.global(),
+                new UsernamePasswordCredentialsImpl(CredentialsScope.GLOBAL, "other", null, "bob", "s3cr3t"));
+        assertThat(findById("late"), is(nullValue()));
+        assertThat(counting.getByIdCalls, is(2));
+    }
+
+    private static StandardUsernamePasswordCredentials findById(String id) {
+        return CredentialsProvider.findCredentialByIdInItemGroup(id, StandardUsernamePasswordCredentials.class,
+                Jenkins.get(), ACL.SYSTEM2, Collections.emptyList());
+    }
+
+    private static List<StandardUsernamePasswordCredentials> lookup() {
+        return CredentialsProvider.lookupCredentialsInItemGroup(StandardUsernamePasswordCredentials.class,
+                Jenkins.get(), ACL.SYSTEM2, Collections.emptyList());
+    }
+
+    @TestExtension("missingCredentialsAreRememberedUntilTheStoreChanges")
+    public static class CountingProvider extends CredentialsProvider {
+        int getByIdCalls;
+
+        @NonNull
+        @Override
+        @SuppressWarnings("rawtypes")
+        public <C extends Credentials> List<C> getCredentialsInItemGroup(@NonNull Class<C> type,
+                                                                         ItemGroup itemGroup,
+                                                                         Authentication authentication,
+                                                                         @NonNull List<DomainRequirement>
+                                                                                 domainRequirements) {
+            return List.of();
+        }
+
+        @Override
+        public <C extends IdCredentials> C getCredentialByIdInItemGroup(@NonNull String id, @NonNull Class<C> type,
+                                                                        @NonNull ItemGroup<?> itemGroup,
+                                                                        @NonNull Authentication authentication,
+                                                                        @NonNull List<DomainRequirement>
+                                                                                domainRequirements) {
+            getByIdCalls++;
+            return null;
+        }
+    }
+}
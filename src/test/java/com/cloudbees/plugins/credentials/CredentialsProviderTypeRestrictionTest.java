@@ -3,6 +3,7 @@ package com.cloudbees.plugins.credentials;
 import com.cloudbees.plugins.credentials.impl.CertificateCredentialsImpl;
 import com.cloudbees.plugins.credentials.impl.UsernamePasswordCredentialsImpl;
 import hudson.ExtensionList;
+import hudson.model.User;
 import org.junit.jupiter.api.Test;
 import org.jvnet.hudson.test.JenkinsRule;
 import org.jvnet.hudson.test.junit.jupiter.WithJenkins;
@@ -11,9 +12,11 @@ import org.jvnet.hudson.test.recipes.LocalData;
 import java.util.List;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -47,4 +50,30 @@ class CredentialsProviderTypeRestrictionTest {
         assertFalse(typeFilter.filter(ExtensionList.lookupSingleton(CertificateCredentialsImpl.DescriptorImpl.class)));
     }
 
-}
\ No newline at end of file
+    @Test
+    void applicabilityFollowsTypeFilterChanges(JenkinsRule j) {
+        CredentialsProvider provider = ExtensionList.lookupSingleton(SystemCredentialsProvider.ProviderImpl.class);
+        assertTrue(provider.isApplicable(UsernamePasswordCredentialsImpl.class));
+        CredentialsProviderManager instance = CredentialsProviderManager.getInstanceOrDie();
+        instance.setTypeFilter(new CredentialsTypeFilter.Excludes(List.of(
+                ExtensionList.lookupSingleton(UsernamePasswordCredentialsImpl.DescriptorImpl.class).getId())));
+        assertFalse(provider.isApplicable(UsernamePasswordCredentialsImpl.class));
+        assertTrue(provider.isApplicable(CertificateCredentialsImpl.class));
+        instance.setTypeFilter(null);
+        assertTrue(provider.isApplicable(UsernamePasswordCredentialsImpl.class));
+    }
+
+    @Test
+    void enabledProvidersFollowProviderFilterChanges(JenkinsRule j) {
+        CredentialsProvider provider = ExtensionList.lookupSingleton(UserCredentialsProvider.class);
+        assertThat(CredentialsProvider.enabled(j.jenkins), hasItem(provider));
+        CredentialsProviderManager instance = CredentialsProviderManager.getInstanceOrDie();
+        instance.setProviderFilter(new CredentialsProviderFilter.Excludes(List.of(provider.getId())));
+        assertFalse(provider.isEnabled());
+        assertThat(CredentialsProvider.enabled(j.jenkins), not(hasItem(provider)));
+        assertFalse(CredentialsProvider.hasStores(User.getById("alice", true)));
+        instance.setProviderFilter(null);
+        assertThat(CredentialsProvider.enabled(j.jenkins), hasItem(provider));
+    }
+
+}
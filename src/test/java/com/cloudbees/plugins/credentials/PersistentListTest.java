@@ -0,0 +1,95 @@
+package com.cloudbees.plugins.credentials;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PersistentListTest {
+
+    @Test
+    void behavesLikeAnArrayList() {
+        Random random = new Random(42);
+        PersistentList<Integer> list = new PersistentList<>();
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            int op = random.nextInt(20);
+            if (op < 12 || expected.isEmpty()) {
+                list.add(i);
+                expected.add(i);
+            } else if (op < 18) {
+                int index = random.nextInt(expected.size());
+                assertThat(list.set(index, -i), is(expected.set(index, -i)));
+            } else if (op == 18) {
+                int index = random.nextInt(expected.size());
+                assertThat(list.remove(index), is(expected.remove(index)));
+            } else {
+                int index = random.nextInt(expected.size() + 1);
+                list.add(index, i);
+                expected.add(index, i);
+            }
+            if (i % 997 == 0) {
+                assertThat(list, is(expected));
+            }
+        }
+        assertThat(list, is(expected));
+        assertThat(list.size(), is(expected.size()));
+        assertThat(list.indexOf(expected.get(expected.size() / 2)), is(expected.size() / 2));
+    }
+
+    @Test
+    void snapshotsAndIteratorsDoNotSeeLaterChanges() {
+        PersistentList<String> list = new PersistentList<>(List.of("a", "b", "c"));
+        List<String> snapshot = list.snapshot();
+        Iterator<String> iterator = list.iterator();
+        list.set(0, "x");
+        list.add("d");
+        list.remove("b");
+        assertThat(snapshot, contains("a", "b", "c"));
+        assertThat(iterator.next(), is("a"));
+        assertThat(list, contains("x", "c", "d"));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.add("e"));
+        assertThrows(IndexOutOfBoundsException.class, () -> list.get(3));
+    }
+
+    @Test
+    void supportsInPlaceModificationsLikeCopyOnWriteArrayList() {
+        PersistentList<String> list = new PersistentList<>(List.of("c", "a", "b"));
+        List<String> snapshot = list.snapshot();
+        list.sort(Comparator.naturalOrder());
+        assertThat(list, contains("a", "b", "c"));
+        list.replaceAll(String::toUpperCase);
+        assertThat(list, contains("A", "B", "C"));
+        ListIterator<String> iterator = list.listIterator();
+        assertThrows(IllegalStateException.class, () -> iterator.set("x"));
+        iterator.next();
+        iterator.next();
+        iterator.set("x");
+        assertThat(iterator.previous(), is("B"));
+        iterator.set("y");
+        assertThat(list, contains("A", "y", "C"));
+        Collections.sort(list, Comparator.reverseOrder());
+        assertThat(list, contains("y", "C", "A"));
+        assertThat(snapshot, contains("c", "a", "b"));
+    }
+
+    @Test
+    void clearsSubLists() {
+        PersistentList<String> list = new PersistentList<>(List.of("a", "b", "c", "d", "e"));
+        List<String> snapshot = list.snapshot();
+        list.subList(1, 3).clear();
+        assertThat(list, contains("a", "d", "e"));
+        list.subList(1, 3).subList(1, 2).clear();
+        assertThat(list, contains("a", "d"));
+        assertThat(snapshot, contains("a", "b", "c", "d", "e"));
+    }
+}
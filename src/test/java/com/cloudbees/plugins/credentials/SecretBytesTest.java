@@ -104,6 +104,25 @@ class SecretBytesTest {
         assertThat(new String(SecretBytes.fromString(broken).getPlainData()), not(is(text)));
     }
 
+    @Test
+    void largeValues() {
+        Random entropy = new Random();
+        byte[] data = new byte[1024 * 1024 + entropy.nextInt(64)];
+        entropy.nextBytes(data);
+        byte[] encrypted = SecretBytes.fromRawBytes(data).getEncryptedData();
+        assertThat(SecretBytes.decrypt(encrypted).getPlainData(), is(data));
+        for (int i = 0; i < 32; i++) {
+            byte[] tampered = encrypted.clone();
+            // the last two blocks of cipher text are followed by at most 16 bytes of random padding
+            tampered[tampered.length - 1 - entropy.nextInt(48)] ^= (byte) (1 + entropy.nextInt(255));
+            SecretBytes s = SecretBytes.decrypt(tampered);
+            if (s != null) {
+                // anything accepted must still decrypt in full
+                s.getPlainData();
+            }
+        }
+    }
+
     @Test
     void noAccidentalDecrypt() {
         // if this fails then you have magically picked up the secret key that this was generated from
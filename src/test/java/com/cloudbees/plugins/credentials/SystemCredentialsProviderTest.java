@@ -24,10 +24,14 @@
 package com.cloudbees.plugins.credentials;
 
 import com.cloudbees.plugins.credentials.common.IdCredentials;
+import com.cloudbees.plugins.credentials.domains.Domain;
+import com.cloudbees.plugins.credentials.domains.HostnameSpecification;
 import com.cloudbees.plugins.credentials.impl.DummyCredentials;
 import com.cloudbees.plugins.credentials.impl.DummyIdCredentials;
 import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.ExtensionList;
 import hudson.Launcher;
+import hudson.XmlFile;
 import hudson.model.AbstractBuild;
 import hudson.model.AbstractProject;
 import hudson.model.BuildListener;
@@ -35,12 +39,28 @@ import hudson.model.Computer;
 import hudson.model.FreeStyleProject;
 import hudson.model.Item;
 import hudson.model.Result;
+import hudson.model.Saveable;
 import hudson.model.User;
+import hudson.model.listeners.SaveableListener;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
 import hudson.tasks.BuildStepDescriptor;
 import hudson.tasks.Builder;
 
+import java.io.File;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import jenkins.model.Jenkins;
 import jenkins.security.QueueItemAuthenticatorConfiguration;
 import org.acegisecurity.Authentication;
 import org.apache.commons.io.FileUtils;
@@ -68,6 +88,292 @@ class SystemCredentialsProviderTest {
         assertTrue(new SystemCredentialsProvider().getCredentials().isEmpty());
         SystemCredentialsProvider.getInstance().save();
         assertFalse(new SystemCredentialsProvider().getCredentials().isEmpty());
+        // the file format does not depend on the in-memory representation
+        assertTrue(FileUtils.readFileToString(SystemCredentialsProvider.getConfigFile().getFile(),
+                StandardCharsets.UTF_8).contains("<java.util.concurrent.CopyOnWriteArrayList>"));
+    }
+
+    @Test
+    void writeBehindCoalescesSaves(JenkinsRule r) throws Exception {
+        long writeBehindMillis = SystemCredentialsProvider.WRITE_BEHIND_MILLIS;
+        SystemCredentialsProvider.WRITE_BEHIND_MILLIS = TimeUnit.HOURS.toMillis(1);
+        try {
+            CredentialsStore store = CredentialsProvider.lookupStores(r.jenkins).iterator().next();
+            for (int i = 0; i < 10; i++) {
+                store.addCredentials(Domain.global(),
+                        new DummyIdCredentials("pending-" + i, CredentialsScope.GLOBAL, "foo", "bar", null));
+            }
+            assertEquals(10, CredentialsProvider.lookupCredentialsInItemGroup(DummyIdCredentials.class, r.jenkins,
+                    ACL.SYSTEM2, Collections.emptyList()).size());
+            assertTrue(new SystemCredentialsProvider().getCredentials().isEmpty());
+            SystemCredentialsProvider.getInstance().flush();
+            assertEquals(10, new SystemCredentialsProvider().getCredentials().size());
+        } finally {
+            SystemCredentialsProvider.WRITE_BEHIND_MILLIS = writeBehindMillis;
+        }
+    }
+
+    @Test
+    void shardedStorageMigratesAndOnlyRewritesChangedDomains(JenkinsRule r) throws Exception {
+        Domain example = new Domain("example", null,
+                Collections.singletonList(new HostnameSpecification("example.com", null)));
+        Map<Domain, List<Credentials>> map = new LinkedHashMap<>();
+        map.put(Domain.global(), new ArrayList<>(Collections.singletonList(
+                new DummyIdCredentials("global", CredentialsScope.GLOBAL, "foo", "bar", null))));
+        map.put(example, new ArrayList<>(Collections.singletonList(
+                new DummyIdCredentials("example", CredentialsScope.GLOBAL, "foo", "bar", null))));
+        SystemCredentialsProvider.getInstance().setDomainCredentialsMap(map);
+        SystemCredentialsProvider.getInstance().save();
+        File xml = SystemCredentialsProvider.getConfigFile().getFile();
+        File directory = new File(r.jenkins.getRootDir(), "credentials.d");
+        boolean sharded = SystemCredentialsProvider.SHARDED;
+        SystemCredentialsProvider.SHARDED = true;
+        try {
+            SystemCredentialsProvider provider = new SystemCredentialsProvider();
+            // only migrated on startup
+            assertTrue(xml.exists());
+            assertFalse(directory.exists());
+            provider.migrateStorage();
+            assertFalse(xml.exists());
+            assertTrue(new File(directory, "index.xml").exists());
+            assertEquals(map.keySet(), provider.getDomainCredentialsMap().keySet());
+            assertEquals(2, countCredentials(provider));
+
+            File global = new File(directory, "global.xml");
+            assertTrue(global.setLastModified(0));
+            provider.getDomainCredentialsMap().get(example).add(
+                    new DummyIdCredentials("other", CredentialsScope.GLOBAL, "foo", "bar", null));
+            provider.save();
+            assertEquals(0, global.lastModified());
+            assertEquals(3, countCredentials(new SystemCredentialsProvider()));
+        } finally {
+            SystemCredentialsProvider.SHARDED = sharded;
+        }
+        // changes made before the shards are migrated back go to credentials.xml, which then wins over the shards
+        SystemCredentialsProvider provider = new SystemCredentialsProvider();
+        assertEquals(3, countCredentials(provider));
+        provider.getDomainCredentialsMap().get(Domain.global()).clear();
+        provider.save();
+        assertTrue(xml.exists());
+        assertTrue(new File(directory, "index.xml").exists());
+        assertEquals(2, countCredentials(new SystemCredentialsProvider()));
+        provider.migrateStorage();
+        assertTrue(xml.exists());
+        assertFalse(directory.exists());
+        SystemCredentialsProvider.SHARDED = true;
+        try {
+            assertEquals(2, countCredentials(new SystemCredentialsProvider()));
+        } finally {
+            SystemCredentialsProvider.SHARDED = sharded;
+        }
+    }
+
+    @Test
+    void shardsAreReadInParallelAsTheCaller(JenkinsRule r) throws Exception {
+        Map<Domain, List<Credentials>> map = new LinkedHashMap<>();
+        for (int i = 0; i < 8; i++) {
+            Domain domain = i == 0 ? Domain.global() : new Domain("domain-" + i, null, Collections.emptyList());
+            map.put(domain, new ArrayList<>(Collections.singletonList(new RecordingCredentials("id-" + i))));
+        }
+        boolean sharded = SystemCredentialsProvider.SHARDED;
+        int loadThreads = ShardedCredentialsStorage.LOAD_THREADS;
+        SystemCredentialsProvider.SHARDED = true;
+        ShardedCredentialsStorage.LOAD_THREADS = 4;
+        try {
+            SystemCredentialsProvider provider = new SystemCredentialsProvider();
+            provider.setDomainCredentialsMap(map);
+            provider.save();
+            RecordingCredentials.READ_AS.clear();
+            RecordingCredentials.READ_ON.clear();
+            SystemCredentialsProvider loaded;
+            try (ACLContext ignored = ACL.as2(ACL.SYSTEM2)) {
+                loaded = new SystemCredentialsProvider();
+            }
+            assertEquals(map.keySet(), loaded.getDomainCredentialsMap().keySet());
+            assertEquals(8, countCredentials(loaded));
+            assertEquals(Collections.nCopies(8, ACL.SYSTEM2), RecordingCredentials.READ_AS);
+            assertTrue(RecordingCredentials.READ_ON.stream().allMatch(n -> n.startsWith("ShardedCredentialsStorage")),
+                    RecordingCredentials.READ_ON::toString);
+        } finally {
+            SystemCredentialsProvider.SHARDED = sharded;
+            ShardedCredentialsStorage.LOAD_THREADS = loadThreads;
+        }
+    }
+
+    public static class RecordingCredentials extends DummyIdCredentials {
+        static final List<org.springframework.security.core.Authentication> READ_AS =
+                Collections.synchronizedList(new ArrayList<>());
+        static final List<String> READ_ON = Collections.synchronizedList(new ArrayList<>());
+
+        public RecordingCredentials(String id) {
+            super(id, CredentialsScope.GLOBAL, "foo", "bar", null);
+        }
+
+        private Object readResolve() {
+            READ_AS.add(Jenkins.getAuthentication2());
+            READ_ON.add(Thread.currentThread().getName());
+            return this;
+        }
+    }
+
+    @Test
+    void journalRecordsStoreChangesUntilCompacted(JenkinsRule r) throws Exception {
+        boolean journal = SystemCredentialsProvider.JOURNAL;
+        long compactionBytes = SystemCredentialsProvider.JOURNAL_COMPACTION_BYTES;
+        SystemCredentialsProvider.JOURNAL = true;
+        SystemCredentialsProvider.JOURNAL_COMPACTION_BYTES = Long.MAX_VALUE;
+        try {
+            CredentialsStore store = CredentialsProvider.lookupStores(r.jenkins).iterator().next();
+            DummyIdCredentials first = new DummyIdCredentials("first", CredentialsScope.GLOBAL, "foo", "bar", null);
+            DummyIdCredentials second = new DummyIdCredentials("second", CredentialsScope.GLOBAL, "foo", "bar", null);
+            SystemCredentialsProvider.getInstance().save();
+            File xml = SystemCredentialsProvider.getConfigFile().getFile();
+            File journalFile = new File(r.jenkins.getRootDir(), "credentials.journal");
+            String snapshot = FileUtils.readFileToString(xml, StandardCharsets.UTF_8);
+            assertFalse(journalFile.exists());
+            JournalSaveCounter counter = ExtensionList.lookupSingleton(JournalSaveCounter.class);
+            int saves = counter.saves.get();
+
+            store.addCredentials(Domain.global(), first);
+            assertEquals(saves + 1, counter.saves.get());
+
+            Domain example = new Domain("example", null,
+                    Collections.singletonList(new HostnameSpecification("example.com", null)));
+            store.addDomain(example, Collections.singletonList(second));
+            store.updateCredentials(Domain.global(), first,
+                    new DummyIdCredentials("first", CredentialsScope.GLOBAL, "updated\nuser", "bar", null));
+            store.removeCredentials(example, second);
+            store.addCredentials(example,
+                    new DummyIdCredentials("third", CredentialsScope.GLOBAL, "foo", "bar", null));
+            assertEquals(snapshot, FileUtils.readFileToString(xml, StandardCharsets.UTF_8));
+            assertTrue(journalFile.exists());
+
+            SystemCredentialsProvider replayed = new SystemCredentialsProvider();
+            assertFalse(journalFile.exists());
+            Map<Domain, List<Credentials>> map = replayed.getDomainCredentialsMap();
+            assertEquals(1, map.get(Domain.global()).size());
+            assertEquals("updated\nuser", ((DummyIdCredentials) map.get(Domain.global()).get(0)).getUsername());
+            assertEquals(Collections.singletonList("third"),
+                    map.get(example).stream().map(c -> ((DummyIdCredentials) c).getId()).toList());
+
+            SystemCredentialsProvider.JOURNAL_COMPACTION_BYTES = 1;
+            store.addCredentials(example,
+                    new DummyIdCredentials("fourth", CredentialsScope.GLOBAL, "foo", "bar", null));
+            for (int i = 0; i < 100 && journalFile.exists(); i++) {
+                Thread.sleep(100);
+            }
+            assertFalse(journalFile.exists());
+            map = new SystemCredentialsProvider().getDomainCredentialsMap();
+            assertEquals(1, map.get(Domain.global()).size());
+            assertEquals(Arrays.asList("third", "fourth"),
+                    map.get(example).stream().map(c -> ((DummyIdCredentials) c).getId()).toList());
+        } finally {
+            SystemCredentialsProvider.JOURNAL = journal;
+            SystemCredentialsProvider.JOURNAL_COMPACTION_BYTES = compactionBytes;
+        }
+    }
+
+    @Test
+    void journalIsNotStartedOnUnwrittenChanges(JenkinsRule r) throws Exception {
+        boolean journal = SystemCredentialsProvider.JOURNAL;
+        long writeBehindMillis = SystemCredentialsProvider.WRITE_BEHIND_MILLIS;
+        SystemCredentialsProvider.getInstance().save();
+        SystemCredentialsProvider.JOURNAL = true;
+        SystemCredentialsProvider.WRITE_BEHIND_MILLIS = TimeUnit.HOURS.toMillis(1);
+        try {
+            SystemCredentialsProvider.getInstance().getCredentials().add(
+                    new DummyIdCredentials("unwritten", CredentialsScope.GLOBAL, "foo", "bar", null));
+            SystemCredentialsProvider.getInstance().save();
+            CredentialsProvider.lookupStores(r.jenkins).iterator().next().addCredentials(Domain.global(),
+                    new DummyIdCredentials("journaled", CredentialsScope.GLOBAL, "foo", "bar", null));
+            assertFalse(new File(r.jenkins.getRootDir(), "credentials.journal").exists());
+            assertEquals(2, new SystemCredentialsProvider().getCredentials().size());
+        } finally {
+            SystemCredentialsProvider.JOURNAL = journal;
+            SystemCredentialsProvider.WRITE_BEHIND_MILLIS = writeBehindMillis;
+        }
+    }
+
+    @Test
+    void lookupsDoNotWaitForWriters(JenkinsRule r) throws Exception {
+        FreeStyleProject job = r.createFreeStyleProject();
+        SystemCredentialsProvider provider = SystemCredentialsProvider.getInstance();
+        provider.getCredentials().add(new DummyIdCredentials("reader", CredentialsScope.GLOBAL, "foo", "bar", null));
+        provider.save();
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread writer = new Thread(() -> {
+            // what a writer holds while it saves
+            synchronized (provider) {
+                locked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        writer.start();
+        try {
+            locked.await();
+            CompletableFuture<List<DummyIdCredentials>> lookup = CompletableFuture.supplyAsync(() ->
+                    CredentialsProvider.lookupCredentialsInItemGroup(DummyIdCredentials.class, r.jenkins,
+                            ACL.SYSTEM2, Collections.emptyList()));
+            assertEquals(1, lookup.get(30, TimeUnit.SECONDS).size());
+            CompletableFuture<DummyIdCredentials> byId = CompletableFuture.supplyAsync(() ->
+                    CredentialsProvider.findCredentialByIdInItem("reader", DummyIdCredentials.class, job,
+                            ACL.SYSTEM2, Collections.emptyList()));
+            assertNotNull(byId.get(30, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            writer.join();
+        }
+    }
+
+    @Test
+    void batchAppliesAllChangesWithOneSave(JenkinsRule r) throws Exception {
+        CredentialsStore store = CredentialsProvider.lookupStores(r.jenkins).iterator().next();
+        SaveCounter counter = ExtensionList.lookupSingleton(SaveCounter.class);
+        Domain example = new Domain("example", null,
+                Collections.singletonList(new HostnameSpecification("example.com", null)));
+        store.batch(batch -> {
+            batch.addDomain(example, Collections.emptyList());
+            for (int i = 0; i < 100; i++) {
+                batch.addCredentials(example,
+                        new DummyIdCredentials("batch-" + i, CredentialsScope.GLOBAL, "foo", "bar", null));
+            }
+            batch.removeCredentials(example,
+                    new DummyIdCredentials("batch-0", CredentialsScope.GLOBAL, "foo", "bar", null));
+        });
+        assertEquals(1, counter.saves.get());
+        assertEquals(99, store.getCredentials(example).size());
+        assertEquals(99, new SystemCredentialsProvider().getDomainCredentialsMap().get(example).size());
+
+        assertThrows(IllegalArgumentException.class, () -> store.batch(batch -> {
+            batch.addCredentials(example,
+                    new DummyIdCredentials("never", CredentialsScope.GLOBAL, "foo", "bar", null));
+            batch.updateCredentials(example,
+                    new DummyIdCredentials("batch-1", CredentialsScope.GLOBAL, "foo", "bar", null),
+                    new DummyIdCredentials("other", CredentialsScope.GLOBAL, "foo", "bar", null));
+        }));
+        assertEquals(99, store.getCredentials(example).size());
+        assertEquals(1, counter.saves.get());
+    }
+
+    @TestExtension("batchAppliesAllChangesWithOneSave")
+    public static class SaveCounter extends SaveableListener {
+        final AtomicInteger saves = new AtomicInteger();
+
+        @Override
+        public void onChange(Saveable o, XmlFile file) {
+            if (o instanceof SystemCredentialsProvider) {
+                saves.incrementAndGet();
+            }
+        }
+    }
+
+    @TestExtension("journalRecordsStoreChangesUntilCompacted")
+    public static class JournalSaveCounter extends SaveCounter {
     }
 
     @Test
@@ -161,6 +467,37 @@ class SystemCredentialsProviderTest {
         r.assertBuildStatus(Result.FAILURE, prj.scheduleBuild2(0).get());
     }
 
+    @Test
+    void credentialByIdFollowsChanges(JenkinsRule r) throws Exception {
+        CredentialsStore store = CredentialsProvider.lookupStores(r.jenkins).iterator().next();
+        Domain domain = new Domain("example", null, Collections.emptyList());
+        assertNull(findById("foo"));
+        DummyIdCredentials foo = new DummyIdCredentials("foo", CredentialsScope.SYSTEM, "alice", "s3cr3t", null);
+        store.addCredentials(Domain.global(), foo);
+        assertSame(foo, findById("foo"));
+        assertSame(foo, store.getCredentialsById(Domain.global(), "foo"));
+        assertNull(store.getCredentialsById(domain, "foo"));
+        assertNull(CredentialsProvider.findCredentialByIdInItemGroup("foo", IdCredentials.class,
+                r.createFolder("folder"), ACL.SYSTEM2, null), "system scoped credentials are not exported");
+        // direct modification of the backing list is still picked up
+        DummyIdCredentials bar = new DummyIdCredentials("bar", CredentialsScope.GLOBAL, "bob", "s3cr3t", null);
+        SystemCredentialsProvider.getInstance().getCredentials().add(bar);
+        assertSame(bar, findById("bar"));
+        store.addDomain(domain, new DummyIdCredentials("baz", CredentialsScope.GLOBAL, "carol", "s3cr3t", null));
+        assertNotNull(store.getCredentialsById(domain, "baz"));
+        store.removeCredentials(Domain.global(), foo);
+        assertNull(findById("foo"));
+        assertNull(store.getCredentialsById(Domain.global(), "foo"));
+    }
+
+    private static int countCredentials(SystemCredentialsProvider provider) {
+        return provider.getDomainCredentialsMap().values().stream().mapToInt(List::size).sum();
+    }
+
+    private static IdCredentials findById(String id) {
+        return CredentialsProvider.findCredentialByIdInItemGroup(id, IdCredentials.class, null, ACL.SYSTEM2, null);
+    }
+
     public static class HasCredentialBuilder extends Builder {
 
         private final String id;
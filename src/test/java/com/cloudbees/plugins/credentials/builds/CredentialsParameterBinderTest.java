@@ -31,6 +31,9 @@ import com.cloudbees.plugins.credentials.CredentialsScope;
 import com.cloudbees.plugins.credentials.common.IdCredentials;
 import com.cloudbees.plugins.credentials.domains.Domain;
 import com.cloudbees.plugins.credentials.impl.UsernamePasswordCredentialsImpl;
+import hudson.Launcher;
+import hudson.model.AbstractBuild;
+import hudson.model.BuildListener;
 import hudson.model.Cause;
 import hudson.model.FreeStyleBuild;
 import hudson.model.FreeStyleProject;
@@ -39,13 +42,19 @@ import hudson.model.ParametersDefinitionProperty;
 import hudson.model.User;
 import hudson.security.ACL;
 import hudson.security.ACLContext;
+import hudson.security.AuthorizationStrategy;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.MockAuthorizationStrategy;
+import org.jvnet.hudson.test.TestBuilder;
 import org.jvnet.hudson.test.junit.jupiter.WithJenkins;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -125,6 +134,51 @@ class CredentialsParameterBinderTest {
         assertNotNull(CredentialsProvider.findCredentialById(cred.getParameterName(), IdCredentials.class, build));
     }
 
+    @Test
+    void findCredentialsByIdMatchesFindCredentialById() throws Exception {
+        addCredentialsParameterDefinition();
+        final FreeStyleBuild build = j.assertBuildStatusSuccess(project.scheduleBuild2(0,
+                new Cause.UserIdCause(USER_ID), selectCredentialsById(USER_CREDENTIALS_ID)));
+        final List<String> ids = List.of(GLOBAL_CREDENTIALS_ID, "${" + PARAMETER_NAME + "}", "missing");
+        final Map<String, IdCredentials> found = CredentialsProvider.findCredentialsById(ids, IdCredentials.class, build, null);
+        assertEquals(List.of(GLOBAL_CREDENTIALS_ID, "${" + PARAMETER_NAME + "}"), new ArrayList<>(found.keySet()));
+        for (String id : ids) {
+            assertEquals(CredentialsProvider.findCredentialById(id, IdCredentials.class, build), found.get(id));
+        }
+        assertEquals(USER_CREDENTIALS_ID, found.get("${" + PARAMETER_NAME + "}").getId());
+    }
+
+    @Test
+    void runCredentialsContextIsOnlyKeptWhileBuilding() throws Exception {
+        final AuthorizationStrategy strategy = j.jenkins.getAuthorizationStrategy();
+        final MockAuthorizationStrategy mock = new MockAuthorizationStrategy();
+        j.jenkins.setAuthorizationStrategy(mock);
+        final List<Boolean> checks = new ArrayList<>();
+        project.getBuildersList().add(new TestBuilder() {
+            @Override
+            public boolean perform(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener) {
+                final RunCredentialsContext context = RunCredentialsContext.of(build);
+                assertSame(context, RunCredentialsContext.of(build));
+                checks.add(context.hasPermission(context.getAuthentication(), CredentialsProvider.USE_ITEM));
+                // permissions are checked again rather than remembered
+                mock.grant(CredentialsProvider.USE_ITEM).everywhere().to(USER_ID);
+                checks.add(RunCredentialsContext.of(build)
+                        .hasPermission(context.getAuthentication(), CredentialsProvider.USE_ITEM));
+                return true;
+            }
+        });
+        try {
+            final FreeStyleBuild build = j.assertBuildStatusSuccess(project.scheduleBuild2(0, new Cause.UserIdCause(USER_ID)));
+            assertEquals(List.of(false, true), checks);
+            final RunCredentialsContext context = RunCredentialsContext.of(build);
+            assertNotSame(context, RunCredentialsContext.of(build));
+            assertEquals(USER_ID, context.getTriggeredBy().getId());
+            assertTrue(context.isTriggeredDirectly());
+        } finally {
+            j.jenkins.setAuthorizationStrategy(strategy);
+        }
+    }
+
     private void addCredentialsParameterDefinition() throws IOException {
         project.addProperty(new ParametersDefinitionProperty(new CredentialsParameterDefinition(PARAMETER_NAME, null, null, IdCredentials.class.getName(), true)));
     }
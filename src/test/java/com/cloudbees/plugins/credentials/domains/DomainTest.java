@@ -24,24 +24,39 @@
 
 package com.cloudbees.plugins.credentials.domains;
 
+import com.cloudbees.plugins.credentials.common.CertificateCredentials;
+import com.cloudbees.plugins.credentials.common.IdCredentials;
+import com.cloudbees.plugins.credentials.common.UsernamePasswordCredentials;
+import com.cloudbees.plugins.credentials.impl.DummyCredentials;
 import com.cloudbees.plugins.credentials.impl.DummyIdCredentials;
 import org.junit.jupiter.api.Test;
 import org.jvnet.hudson.test.JenkinsRule;
 
+import com.cloudbees.plugins.credentials.Credentials;
+import com.cloudbees.plugins.credentials.CredentialsMatchers;
 import com.cloudbees.plugins.credentials.CredentialsProvider;
 import com.cloudbees.plugins.credentials.CredentialsScope;
 import com.cloudbees.plugins.credentials.CredentialsStore;
 
+import edu.umd.cs.findbugs.annotations.NonNull;
 import hudson.security.ACL;
 import jenkins.model.Jenkins;
+import org.apache.commons.io.FilenameUtils;
 import org.jvnet.hudson.test.junit.jupiter.WithJenkins;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -76,6 +91,198 @@ class DomainTest {
 
     }
 
+    @Test
+    void wildcardsMatchLikeFilenameUtils(JenkinsRule r) {
+        String[] values = {"", "a", "jenkins.io", "www.jenkins.io", "www.jenkins.io:443", "aaa", "abcabc", "abab"};
+        String[] patterns = {"*", "?", "a*", "*a", "*.jenkins.io", "www.*.io", "*:443", "a?c*", "*b*c", "a**a", "?*?",
+                "aaa", "a*a*a", "ab*ab", "*bc*", "w*.*.io*"};
+        for (String value : values) {
+            for (String pattern : patterns) {
+                assertEquals(FilenameUtils.wildcardMatch(value, pattern), WildcardPatterns.wildcardMatch(value, pattern),
+                        value + " against " + pattern);
+                assertEquals(FilenameUtils.wildcardMatch(value, pattern), WildcardPatterns.Glob.of(pattern).matches(value),
+                        value + " against compiled " + pattern);
+            }
+        }
+        assertThat(WildcardPatterns.Glob.of("*.jenkins.io"), sameInstance(WildcardPatterns.Glob.of("*.jenkins.io")));
+    }
+
+    @Test
+    void specificationsAreCompiledWhenDeserialized(JenkinsRule r) {
+        DomainSpecification hostname = roundTrip(new HostnameSpecification("*.jenkins.io, Example.COM", "ci.jenkins.io"));
+        assertThat(hostname.test(new HostnameRequirement("updates.jenkins.io")), is(DomainSpecification.Result.PARTIAL));
+        assertThat(hostname.test(new HostnameRequirement("example.com")), is(DomainSpecification.Result.PARTIAL));
+        assertThat(hostname.test(new HostnameRequirement("ci.jenkins.io")), is(DomainSpecification.Result.NEGATIVE));
+        DomainSpecification hostnamePort = roundTrip(new HostnamePortSpecification("*.jenkins.io:443", null));
+        assertThat(hostnamePort.test(new HostnamePortRequirement("updates.jenkins.io", 443)), is(DomainSpecification.Result.UNKNOWN));
+        assertThat(hostnamePort.test(new HostnamePortRequirement("updates.jenkins.io", 80)), is(DomainSpecification.Result.NEGATIVE));
+        assertThat(hostnamePort.test(new HostnameRequirement("updates.jenkins.io")), is(DomainSpecification.Result.UNKNOWN));
+        DomainSpecification path = roundTrip(new PathSpecification("/download/**, /Plain", "/download/secret", false));
+        assertThat(path.test(new PathRequirement("/plain")), is(DomainSpecification.Result.PARTIAL));
+        assertThat(path.test(new PathRequirement("/download/a/b")), is(DomainSpecification.Result.PARTIAL));
+        assertThat(path.test(new PathRequirement("/DOWNLOAD/secret")), is(DomainSpecification.Result.NEGATIVE));
+    }
+
+    private static DomainSpecification roundTrip(DomainSpecification specification) {
+        return (DomainSpecification) Jenkins.XSTREAM2.fromXML(Jenkins.XSTREAM2.toXML(specification));
+    }
+
+    @Test
+    void matchesAreRememberedPerRequirements(JenkinsRule r) {
+        CountingSpecification counting = new CountingSpecification();
+        Domain domain = new Domain("counted", null, List.of(counting, new HostnameSpecification("*.jenkins.io", null)));
+        assertThat(domain.test(URIRequirementBuilder.fromUri("https://ci.jenkins.io/").build()), is(true));
+        assertThat(domain.test(List.of(new HostnameRequirement("ci.jenkins.io"))), is(true));
+        assertThat(domain.test(List.of(new HostnameRequirement("example.com"))), is(false));
+        int count = counting.count.get();
+        assertThat(domain.test(URIRequirementBuilder.fromUri("https://ci.jenkins.io/").build()), is(true));
+        assertThat(domain.test(List.of(new HostnameRequirement("ci.jenkins.io"))), is(true));
+        assertThat(domain.test(List.of(new HostnameRequirement("example.com"))), is(false));
+        assertThat(counting.count.get(), is(count));
+        // requirements from other plugins may not define equality
+        domain.test(List.of(new DomainRequirement()));
+        domain.test(List.of(new DomainRequirement()));
+        assertThat(counting.count.get(), is(count + 2));
+    }
+
+    private static class CountingSpecification extends DomainSpecification {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @NonNull
+        @Override
+        public Result test(@NonNull DomainRequirement scope) {
+            count.incrementAndGet();
+            return Result.UNKNOWN;
+        }
+    }
+
+    @Test
+    void indexSelectsTheSameDomainsAsTestingEveryDomain(JenkinsRule r) {
+        Map<Domain, List<Credentials>> map = new LinkedHashMap<>();
+        for (Domain domain : hostnameDomains()) {
+            map.put(domain, List.of(new DummyIdCredentials(domain.getName(), CredentialsScope.GLOBAL, "user", "pwd",
+                    null)));
+        }
+        DomainCredentialsIndex index = DomainCredentialsIndex.of(map);
+        for (String uri : URIS) {
+            List<DomainRequirement> requirements = URIRequirementBuilder.fromUri(uri).build();
+            List<Credentials> expected = DomainCredentials.getCredentials(map, Credentials.class, requirements,
+                    CredentialsMatchers.always());
+            assertThat(uri, index.getCredentials(Credentials.class, requirements, CredentialsMatchers.always()),
+                    is(expected));
+            assertThat(uri, index.streamCredentials(Credentials.class, requirements, CredentialsMatchers.always())
+                    .collect(Collectors.toList()), is(expected));
+        }
+        List<DomainRequirement> hostname = List.of(new HostnameRequirement("www.jenkins.io"));
+        assertThat(index.getCredentials(Credentials.class, hostname, CredentialsMatchers.always()),
+                is(DomainCredentials.getCredentials(map, Credentials.class, hostname, CredentialsMatchers.always())));
+    }
+
+    @Test
+    void credentialsForEachMatchesIndividualLookups(JenkinsRule r) throws IOException {
+        CredentialsStore store = CredentialsProvider.lookupStores(r.jenkins).iterator().next();
+        Map<Domain, List<Credentials>> map = new LinkedHashMap<>();
+        for (Domain domain : hostnameDomains()) {
+            List<Credentials> credentials = List.of(new DummyIdCredentials(domain.getName(), CredentialsScope.GLOBAL,
+                    "user", "pwd", null));
+            if (domain.isGlobal()) {
+                store.addCredentials(domain, credentials.get(0));
+            } else {
+                store.addDomain(domain, credentials);
+            }
+            map.put(domain, credentials);
+        }
+        List<List<DomainRequirement>> requirements = new ArrayList<>();
+        for (String uri : URIS) {
+            requirements.add(URIRequirementBuilder.fromUri(uri).build());
+        }
+        requirements.add(URIRequirementBuilder.fromUri(URIS[0]).build());
+        requirements.add(List.of());
+        List<List<DummyIdCredentials>> expected = new ArrayList<>();
+        for (List<DomainRequirement> list : requirements) {
+            expected.add(DomainCredentials.getCredentials(map, DummyIdCredentials.class, list,
+                    CredentialsMatchers.always()));
+        }
+        assertThat(DomainCredentials.getCredentialsForEach(map, DummyIdCredentials.class, requirements,
+                CredentialsMatchers.always()), is(expected));
+        assertThat(DomainCredentialsIndex.of(map).getCredentialsForEach(DummyIdCredentials.class, requirements,
+                CredentialsMatchers.always()), is(expected));
+        List<List<DummyIdCredentials>> results = store.getCredentialsForEach(DummyIdCredentials.class, requirements,
+                CredentialsMatchers.always());
+        assertThat(results, is(expected));
+        // duplicate requirements still get their own list
+        results.get(0).clear();
+        assertThat(results.get(URIS.length), is(expected.get(0)));
+    }
+
+    private static final String[] URIS = {"https://ci.jenkins.io/", "https://ci.jenkins.io:8443/",
+            "http://EXAMPLE.com/job/x", "https://www.example.com/", "https://a.jenkins.io/",
+            "https://updates.jenkins.io/", "https://jenkins.io/", "https://io/", "https://[::1]:8080/",
+            "https://localhost/"};
+
+    private static List<Domain> hostnameDomains() {
+        return List.of(
+                Domain.global(),
+                new Domain("exact", null, List.of(new HostnameSpecification("ci.jenkins.io, Example.COM", null))),
+                new Domain("suffix", null, List.of(new HostnameSpecification("*.jenkins.io", "ci.jenkins.io"))),
+                new Domain("inner", null, List.of(new HostnameSpecification("updates.*.io", null))),
+                new Domain("single", null, List.of(new HostnameSpecification("?.jenkins.io", null))),
+                new Domain("everything", null, List.of(new HostnameSpecification("*", null))),
+                new Domain("nothing", null, List.of(new HostnameSpecification("", null))),
+                new Domain("excludes", null, List.of(new HostnameSpecification(null, "example.com"))),
+                new Domain("port", null, List.of(new SchemeSpecification("https"),
+                        new HostnamePortSpecification("ci.jenkins.io:443, *.example.com", null))),
+                new Domain("path", null, List.of(new PathSpecification("/job/**", null, false),
+                        new HostnameSpecification("example.com", null))));
+    }
+
+    @Test
+    void indexOnlyReturnsCredentialsOfTheRequestedType(JenkinsRule r) {
+        List<Credentials> mixed = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            mixed.add(i % 3 == 0
+                    ? new DummyIdCredentials("id-" + i, CredentialsScope.GLOBAL, "user", "pwd", null)
+                    : new DummyCredentials(CredentialsScope.GLOBAL, "user-" + i, "pwd"));
+        }
+        Map<Domain, List<Credentials>> map = new LinkedHashMap<>();
+        map.put(Domain.global(), mixed);
+        map.put(new Domain("other", null, List.of(new HostnameSpecification("jenkins.io", null))),
+                List.of(new DummyIdCredentials("other", CredentialsScope.GLOBAL, "user", "pwd", null)));
+        DomainCredentialsIndex index = DomainCredentialsIndex.of(map);
+        for (Class<? extends Credentials> type : List.of(Credentials.class, IdCredentials.class,
+                UsernamePasswordCredentials.class, DummyCredentials.class, CertificateCredentials.class)) {
+            assertSameCredentials(map, index, type, List.of());
+            assertSameCredentials(map, index, type, List.of(new HostnameRequirement("example.com")));
+        }
+        assertThat(index.getCredentials(IdCredentials.class, List.of(), CredentialsMatchers.always()).size(), is(5));
+    }
+
+    @Test
+    void indexReturnsTheFirstCredentialsByIdInIterationOrder(JenkinsRule r) {
+        DummyIdCredentials scoped = new DummyIdCredentials("dup", CredentialsScope.GLOBAL, "scoped", "pwd", null);
+        DummyIdCredentials global = new DummyIdCredentials("dup", CredentialsScope.GLOBAL, "global", "pwd", null);
+        Map<Domain, List<Credentials>> map = new LinkedHashMap<>();
+        map.put(new Domain("jenkins", null, List.of(new HostnameSpecification("*.jenkins.io", null))), List.of(scoped));
+        map.put(Domain.global(), List.of(global));
+        DomainCredentialsIndex index = DomainCredentialsIndex.of(map);
+        assertThat(index.getCredentialById("dup", DummyIdCredentials.class,
+                List.of(new HostnameRequirement("ci.jenkins.io")), CredentialsMatchers.always()), is(scoped));
+        assertThat(index.getCredentialById("dup", DummyIdCredentials.class,
+                List.of(new HostnameRequirement("example.com")), CredentialsMatchers.always()), is(global));
+        assertThat(index.getCredentialById("dup", DummyIdCredentials.class,
+                List.of(), CredentialsMatchers.withUsername("nobody")), is(nullValue()));
+    }
+
+    private static <C extends Credentials> void assertSameCredentials(Map<Domain, List<Credentials>> map,
+                                                                      DomainCredentialsIndex index, Class<C> type,
+                                                                      List<DomainRequirement> requirements) {
+        List<C> expected = DomainCredentials.getCredentials(map, type, requirements, CredentialsMatchers.always());
+        assertThat(type.getName(), index.getCredentials(type, requirements, CredentialsMatchers.always()),
+                is(expected));
+        assertThat(type.getName(), index.streamCredentials(type, requirements, CredentialsMatchers.always())
+                .collect(Collectors.toList()), is(expected));
+    }
+
     @Test
     void testCredentialsInCustomDomains(JenkinsRule r) throws IOException {
         Domain domainFoo = new Domain("domainFoo", "Hostname domain", Arrays.asList(new DomainSpecification[] { new HostnameSpecification("foo.com", "") }));
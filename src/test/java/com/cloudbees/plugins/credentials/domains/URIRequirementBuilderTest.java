@@ -0,0 +1,51 @@
+package com.cloudbees.plugins.credentials.domains;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+class URIRequirementBuilderTest {
+
+    @Test
+    void requirementsAreComparable() {
+        assertThat(new HostnameRequirement("jenkins.io"), is(new HostnameRequirement("jenkins.io")));
+        assertThat(new HostnameRequirement("jenkins.io").hashCode(), is(new HostnameRequirement("jenkins.io").hashCode()));
+        assertThat(new HostnameRequirement(null), is(new HostnameRequirement(null)));
+        assertThat(new HostnameRequirement("jenkins.io"), not(new HostnamePortRequirement("jenkins.io", 443)));
+        assertThat(new HostnamePortRequirement("jenkins.io", 443), not(new HostnameRequirement("jenkins.io")));
+        assertThat(new HostnamePortRequirement("jenkins.io", 443), is(new HostnamePortRequirement("jenkins.io", 443)));
+        assertThat(new HostnamePortRequirement("jenkins.io", 443), not(new HostnamePortRequirement("jenkins.io", 80)));
+        assertThat(new SchemeRequirement("https"), is(new SchemeRequirement("https")));
+        assertThat(new PathRequirement("job"), is(new PathRequirement("/job")));
+    }
+
+    @Test
+    void parsedUrisAreRemembered() {
+        String uri = "https://ci.jenkins.io:8443/job/x";
+        List<DomainRequirement> first = URIRequirementBuilder.fromUri(uri).build();
+        List<DomainRequirement> second = URIRequirementBuilder.fromUri(uri).build();
+        assertThat(first, contains(new SchemeRequirement("https"), new HostnameRequirement("ci.jenkins.io"),
+                new HostnamePortRequirement("ci.jenkins.io", 8443), new PathRequirement("/job/x")));
+        assertThat(second, is(first));
+        assertThat(second.get(1), sameInstance(first.get(1)));
+        // build still returns a list the caller owns
+        first.clear();
+        assertThat(URIRequirementBuilder.fromUri(uri).build(), is(second));
+    }
+
+    @Test
+    void withUriReplacesTheUriRequirements() {
+        List<DomainRequirement> requirements = URIRequirementBuilder.fromUri("ssh://git@github.com:22/repo.git")
+                .withUri("https://jenkins.io")
+                .build();
+        assertThat(requirements, contains(new SchemeRequirement("https"), new HostnameRequirement("jenkins.io"),
+                new PathRequirement("/")));
+        assertThat(URIRequirementBuilder.create().withPath("/kept").withUri("not a uri").build(),
+                contains(new PathRequirement("/kept")));
+    }
+}
@@ -0,0 +1,42 @@
+package jmh;
+
+import java.util.concurrent.TimeUnit;
+import jenkins.benchmark.jmh.BenchmarkFinder;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs all the {@link jenkins.benchmark.jmh.JmhBenchmark}s. Not picked up by the normal test run, use
+ * {@code mvn -P benchmark test} and add {@code -Dbenchmark.include=<regex>} to only run some of them. Benchmarks run
+ * on a single thread unless annotated otherwise. The results, including the allocation rate, are written to
+ * {@code target/jmh-report.json}.
+ */
+class BenchmarkRunner {
+
+    @Test
+    void runJmhBenchmarks() throws Exception {
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .mode(Mode.Throughput)
+                .timeUnit(TimeUnit.SECONDS)
+                .warmupIterations(3)
+                .measurementIterations(5)
+                .forks(1)
+                .shouldFailOnError(true)
+                .shouldDoGC(true)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result("target/jmh-report.json");
+        String include = System.getProperty("benchmark.include");
+        if (include != null && !include.isBlank()) {
+            options.include(include);
+        } else {
+            new BenchmarkFinder(getClass()).findBenchmarks(options);
+        }
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,73 @@
+package jmh.benchmarks;
+
+import com.cloudbees.plugins.credentials.CredentialsProvider;
+import com.cloudbees.plugins.credentials.CredentialsScope;
+import com.cloudbees.plugins.credentials.CredentialsStore;
+import com.cloudbees.plugins.credentials.SystemCredentialsProvider;
+import com.cloudbees.plugins.credentials.common.StandardUsernamePasswordCredentials;
+import com.cloudbees.plugins.credentials.domains.Domain;
+import com.cloudbees.plugins.credentials.domains.DomainRequirement;
+import com.cloudbees.plugins.credentials.domains.URIRequirementBuilder;
+import com.cloudbees.plugins.credentials.impl.UsernamePasswordCredentialsImpl;
+import hudson.security.ACL;
+import java.util.List;
+import jenkins.benchmark.jmh.JmhBenchmark;
+import jenkins.model.Jenkins;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Measures how lookups in the {@link SystemCredentialsProvider} scale with the number of threads, on their own and
+ * while another thread keeps updating a credential, which writes {@code credentials.xml} each time. Compare the
+ * throughput of {@link #findByIdOneThread} with {@link #findById} to see the scaling, and {@link #findById} with
+ * {@code readWhileWriting:lookup} to see how much the writer gets in the way.
+ */
+@JmhBenchmark
+public class ConcurrentLookupBenchmark {
+
+    /**
+     * Matches one of the hostname domains.
+     */
+    private static final List<DomainRequirement> URI =
+            URIRequirementBuilder.fromUri("https://" + CredentialsState.hostname(7) + "/").build();
+
+    @Benchmark
+    @Threads(1)
+    public StandardUsernamePasswordCredentials findByIdOneThread(CredentialsState state) {
+        return findById(state);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public StandardUsernamePasswordCredentials findById(CredentialsState state) {
+        return CredentialsProvider.findCredentialByIdInItem(CredentialsState.id(state.credentials / 2),
+                StandardUsernamePasswordCredentials.class, state.job, ACL.SYSTEM2, List.of());
+    }
+
+    @Benchmark
+    @Threads(64)
+    public List<StandardUsernamePasswordCredentials> lookupByTypeAndUri(CredentialsState state) {
+        return CredentialsProvider.lookupCredentialsInItem(StandardUsernamePasswordCredentials.class, state.job,
+                ACL.SYSTEM2, URI);
+    }
+
+    @Benchmark
+    @Group("readWhileWriting")
+    @GroupThreads(63)
+    public StandardUsernamePasswordCredentials lookup(CredentialsState state) {
+        return findById(state);
+    }
+
+    @Benchmark
+    @Group("readWhileWriting")
+    @GroupThreads(1)
+    public boolean update(CredentialsState state) throws Exception {
+        CredentialsStore store = CredentialsProvider.lookupStores(Jenkins.get()).iterator().next();
+        // the first credential is always in the global domain
+        UsernamePasswordCredentialsImpl credentials = new UsernamePasswordCredentialsImpl(CredentialsScope.GLOBAL,
+                CredentialsState.id(0), null, "user-0", "password-0");
+        return store.updateCredentials(Domain.global(), credentials, credentials);
+    }
+}
@@ -0,0 +1,56 @@
+package jmh.benchmarks;
+
+import com.cloudbees.plugins.credentials.CredentialsMatchers;
+import com.cloudbees.plugins.credentials.CredentialsProvider;
+import com.cloudbees.plugins.credentials.common.StandardUsernameCredentials;
+import com.cloudbees.plugins.credentials.common.StandardUsernamePasswordCredentials;
+import com.cloudbees.plugins.credentials.domains.DomainRequirement;
+import com.cloudbees.plugins.credentials.domains.URIRequirementBuilder;
+import hudson.security.ACL;
+import hudson.util.ListBoxModel;
+import java.util.List;
+import jenkins.benchmark.jmh.JmhBenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+
+/**
+ * Measures the {@link CredentialsProvider} lookups that plugins use to find credentials for a job.
+ */
+@JmhBenchmark
+public class CredentialsLookupBenchmark {
+
+    /**
+     * Matches one of the hostname domains.
+     */
+    private static final List<DomainRequirement> URI =
+            URIRequirementBuilder.fromUri("https://" + CredentialsState.hostname(7) + "/").build();
+
+    @Benchmark
+    public List<StandardUsernamePasswordCredentials> lookupByType(CredentialsState state) {
+        return CredentialsProvider.lookupCredentialsInItem(StandardUsernamePasswordCredentials.class, state.job,
+                ACL.SYSTEM2, List.of());
+    }
+
+    @Benchmark
+    public List<StandardUsernamePasswordCredentials> lookupByTypeAndUri(CredentialsState state) {
+        return CredentialsProvider.lookupCredentialsInItem(StandardUsernamePasswordCredentials.class, state.job,
+                ACL.SYSTEM2, URI);
+    }
+
+    @Benchmark
+    public StandardUsernamePasswordCredentials findById(CredentialsState state) {
+        return CredentialsProvider.findCredentialByIdInItem(CredentialsState.id(state.credentials / 2),
+                StandardUsernamePasswordCredentials.class, state.job, ACL.SYSTEM2, List.of());
+    }
+
+    @Benchmark
+    public StandardUsernamePasswordCredentials findMissingById(CredentialsState state) {
+        return CredentialsProvider.findCredentialByIdInItem("missing", StandardUsernamePasswordCredentials.class,
+                state.job, ACL.SYSTEM2, List.of());
+    }
+
+    @Benchmark
+    public ListBoxModel listBox(CredentialsState state) {
+        return CredentialsProvider.listCredentialsInItem(StandardUsernameCredentials.class, state.job, ACL.SYSTEM2,
+                URI, CredentialsMatchers.always());
+    }
+}
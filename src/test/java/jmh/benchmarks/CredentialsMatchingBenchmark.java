@@ -0,0 +1,56 @@
+package jmh.benchmarks;
+
+import com.cloudbees.plugins.credentials.Credentials;
+import com.cloudbees.plugins.credentials.CredentialsMatcher;
+import com.cloudbees.plugins.credentials.CredentialsMatchers;
+import com.cloudbees.plugins.credentials.SystemCredentialsProvider;
+import com.cloudbees.plugins.credentials.common.StandardUsernamePasswordCredentials;
+import com.cloudbees.plugins.credentials.domains.DomainCredentials;
+import com.cloudbees.plugins.credentials.domains.DomainRequirement;
+import com.cloudbees.plugins.credentials.domains.URIRequirementBuilder;
+import java.util.List;
+import jenkins.benchmark.jmh.JmhBenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+
+/**
+ * Measures matching credentials against domains and {@link CredentialsMatcher}s, which is what the providers in this
+ * plugin spend most of their time on.
+ */
+@JmhBenchmark
+public class CredentialsMatchingBenchmark {
+
+    /**
+     * Matches one of the hostname domains.
+     */
+    private static final List<DomainRequirement> URI =
+            URIRequirementBuilder.fromUri("https://" + CredentialsState.hostname(7) + "/").build();
+
+    /**
+     * A typical matcher built by a plugin that looks for a credential by ID.
+     */
+    private static final CredentialsMatcher BY_ID = CredentialsMatchers.allOf(
+            CredentialsMatchers.instanceOf(StandardUsernamePasswordCredentials.class),
+            CredentialsMatchers.withId(CredentialsState.id(5)));
+
+    @Benchmark
+    public List<StandardUsernamePasswordCredentials> domainCredentialsByType(CredentialsState state) {
+        return DomainCredentials.getCredentials(SystemCredentialsProvider.getInstance().getDomainCredentialsMap(),
+                StandardUsernamePasswordCredentials.class, List.of(), CredentialsMatchers.always());
+    }
+
+    @Benchmark
+    public List<StandardUsernamePasswordCredentials> domainCredentialsByUri(CredentialsState state) {
+        return DomainCredentials.getCredentials(SystemCredentialsProvider.getInstance().getDomainCredentialsMap(),
+                StandardUsernamePasswordCredentials.class, URI, CredentialsMatchers.always());
+    }
+
+    @Benchmark
+    public List<Credentials> filterByUsername(CredentialsState state) {
+        return CredentialsMatchers.filter(state.systemCredentials, CredentialsMatchers.withUsername("user-7"));
+    }
+
+    @Benchmark
+    public List<Credentials> filterById(CredentialsState state) {
+        return CredentialsMatchers.filter(state.systemCredentials, BY_ID);
+    }
+}
@@ -0,0 +1,139 @@
+package jmh.benchmarks;
+
+import com.cloudbees.plugins.credentials.Credentials;
+import com.cloudbees.plugins.credentials.CredentialsProvider;
+import com.cloudbees.plugins.credentials.CredentialsScope;
+import com.cloudbees.plugins.credentials.CredentialsStore;
+import com.cloudbees.plugins.credentials.SystemCredentialsProvider;
+import com.cloudbees.plugins.credentials.domains.Domain;
+import com.cloudbees.plugins.credentials.domains.DomainSpecification;
+import com.cloudbees.plugins.credentials.domains.HostnameSpecification;
+import com.cloudbees.plugins.credentials.domains.SchemeSpecification;
+import com.cloudbees.plugins.credentials.impl.UsernamePasswordCredentialsImpl;
+import hudson.model.FreeStyleProject;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import jenkins.benchmark.jmh.JmhBenchmarkState;
+import jenkins.model.Jenkins;
+import org.jvnet.hudson.test.MockFolder;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * A Jenkins instance with {@link #credentials} credentials in the {@link SystemCredentialsProvider}, spread over the
+ * global domain and up to {@link #MAX_DOMAINS} hostname domains, plus a tenth as many in a folder that contains
+ * {@link #job}.
+ */
+public class CredentialsState extends JmhBenchmarkState {
+
+    /**
+     * The maximum number of domains to spread the credentials over.
+     */
+    static final int MAX_DOMAINS = 50;
+
+    /**
+     * The number of credentials in the system store.
+     */
+    @Param({"10", "1000", "50000"})
+    public int credentials;
+
+    /**
+     * All the credentials in the system store.
+     */
+    List<Credentials> systemCredentials;
+
+    /**
+     * The folder holding the folder scoped credentials.
+     */
+    MockFolder folder;
+
+    /**
+     * A job in {@link #folder}.
+     */
+    FreeStyleProject job;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setup() throws Exception {
+        Jenkins jenkins = Jenkins.get();
+        SystemCredentialsProvider system = SystemCredentialsProvider.getInstance();
+        Map<Domain, List<Credentials>> seeded = seed("system", credentials);
+        systemCredentials = new ArrayList<>(credentials);
+        seeded.values().forEach(systemCredentials::addAll);
+        system.setDomainCredentialsMap(seeded);
+        system.save();
+        folder = jenkins.createProject(MockFolder.class, "folder");
+        job = folder.createProject(FreeStyleProject.class, "job");
+        CredentialsStore store = CredentialsProvider.lookupStores(folder).iterator().next();
+        for (Map.Entry<Domain, List<Credentials>> entry : seed("folder", Math.max(1, credentials / 10)).entrySet()) {
+            if (entry.getKey().isGlobal()) {
+                for (Credentials c : entry.getValue()) {
+                    store.addCredentials(entry.getKey(), c);
+                }
+            } else {
+                store.addDomain(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Returns the ID of the {@code index}th credential of the system store, counting in creation order.
+     *
+     * @param index the index.
+     * @return the ID.
+     */
+    static String id(int index) {
+        return "system-" + index;
+    }
+
+    /**
+     * Returns the hostname matched by the {@code index}th domain.
+     *
+     * @param index the index.
+     * @return the hostname.
+     */
+    static String hostname(int index) {
+        return "host-" + index + ".example.com";
+    }
+
+    /**
+     * Returns the number of domains, other than the global domain, used for the specified number of credentials.
+     *
+     * @param count the number of credentials.
+     * @return the number of domains.
+     */
+    static int domains(int count) {
+        return Math.max(1, Math.min(MAX_DOMAINS, count / 10));
+    }
+
+    /**
+     * Creates credentials spread round robin over the global domain and some hostname domains.
+     *
+     * @param prefix the ID prefix.
+     * @param count  the number of credentials.
+     * @return the credentials by domain.
+     * @throws Exception if the credentials could not be created.
+     */
+    private static Map<Domain, List<Credentials>> seed(String prefix, int count) throws Exception {
+        int domainCount = domains(count);
+        List<Domain> domains = new ArrayList<>(domainCount + 1);
+        domains.add(Domain.global());
+        for (int i = 0; i < domainCount; i++) {
+            domains.add(new Domain(prefix + "-domain-" + i, null, List.<DomainSpecification>of(
+                    new SchemeSpecification("https"),
+                    new HostnameSpecification(hostname(i), null))));
+        }
+        Map<Domain, List<Credentials>> result = new LinkedHashMap<>();
+        for (Domain domain : domains) {
+            result.put(domain, new ArrayList<>());
+        }
+        for (int i = 0; i < count; i++) {
+            result.get(domains.get(i % domains.size())).add(new UsernamePasswordCredentialsImpl(
+                    CredentialsScope.GLOBAL, prefix + "-" + i, null, "user-" + i, "password-" + i));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,96 @@
+package jmh.benchmarks;
+
+import com.cloudbees.plugins.credentials.domains.DomainRequirement;
+import com.cloudbees.plugins.credentials.domains.DomainSpecification;
+import com.cloudbees.plugins.credentials.domains.HostnamePortRequirement;
+import com.cloudbees.plugins.credentials.domains.HostnamePortSpecification;
+import com.cloudbees.plugins.credentials.domains.HostnameRequirement;
+import com.cloudbees.plugins.credentials.domains.HostnameSpecification;
+import hudson.Util;
+import jenkins.benchmark.jmh.JmhBenchmark;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOCase;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures matching a set of realistic hostnames against the hostname specifications of one domain, comparing the
+ * compiled patterns of the specifications with parsing every pattern with {@link FilenameUtils} on every test, as
+ * the specifications used to.
+ */
+@JmhBenchmark
+public class HostnameMatchingBenchmark {
+
+    /**
+     * The include patterns of the domain.
+     */
+    private static final String INCLUDES =
+            "github.com, *.github.com, *.git.corp.example, gitlab-??.corp.example, registry-*.corp.example, "
+                    + "artifacts.corp.example, *.s3.amazonaws.com";
+
+    /**
+     * The exclude patterns of the domain.
+     */
+    private static final String EXCLUDES = "legacy.git.corp.example, *-test.git.corp.example";
+
+    /**
+     * The hostnames a controller typically asks for, some matching and some not.
+     */
+    private static final String[] HOSTNAMES = {
+            "github.com", "api.github.com", "scm.git.corp.example", "legacy.git.corp.example",
+            "team-test.git.corp.example", "gitlab-01.corp.example", "gitlab-123.corp.example",
+            "registry-eu.corp.example", "artifacts.corp.example", "bucket.s3.amazonaws.com", "bitbucket.org",
+            "updates.jenkins.io", "localhost", "10.0.0.12"
+    };
+
+    @State(Scope.Benchmark)
+    public static class Specifications {
+        final DomainSpecification hostname = new HostnameSpecification(INCLUDES, EXCLUDES);
+        final DomainSpecification hostnamePort = new HostnamePortSpecification(INCLUDES, EXCLUDES);
+        final DomainRequirement[] hostnames = new DomainRequirement[HOSTNAMES.length];
+        final DomainRequirement[] hostnamePorts = new DomainRequirement[HOSTNAMES.length];
+
+        public Specifications() {
+            for (int i = 0; i < HOSTNAMES.length; i++) {
+                hostnames[i] = new HostnameRequirement(HOSTNAMES[i]);
+                hostnamePorts[i] = new HostnamePortRequirement(HOSTNAMES[i], 443);
+            }
+        }
+    }
+
+    @Benchmark
+    public void compiledHostname(Specifications state, Blackhole blackhole) {
+        for (DomainRequirement requirement : state.hostnames) {
+            blackhole.consume(state.hostname.test(requirement));
+        }
+    }
+
+    @Benchmark
+    public void compiledHostnamePort(Specifications state, Blackhole blackhole) {
+        for (DomainRequirement requirement : state.hostnamePorts) {
+            blackhole.consume(state.hostnamePort.test(requirement));
+        }
+    }
+
+    @Benchmark
+    public void filenameUtilsHostname(Blackhole blackhole) {
+        for (String hostname : HOSTNAMES) {
+            blackhole.consume(matches(hostname, INCLUDES) && !matches(hostname, EXCLUDES));
+        }
+    }
+
+    /**
+     * How the specifications used to match a hostname against a list of patterns.
+     */
+    private static boolean matches(String hostname, String patterns) {
+        for (String pattern : patterns.split("[,\\n ]")) {
+            pattern = Util.fixEmptyAndTrim(pattern);
+            if (pattern != null && FilenameUtils.wildcardMatch(hostname, pattern, IOCase.INSENSITIVE)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}